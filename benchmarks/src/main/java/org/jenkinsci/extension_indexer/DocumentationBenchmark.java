@@ -0,0 +1,42 @@
+package org.jenkinsci.extension_indexer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Time it takes to render the Javadoc of the records of a module into the Asciidoc documentation.
+ */
+@State(Scope.Benchmark)
+public class DocumentationBenchmark {
+    private Fixtures fixtures;
+    private ExtensionPointsExtractor extractor;
+    private List<ClassOfInterest> found;
+
+    @Setup
+    public void setUp() throws IOException {
+        fixtures = Fixtures.create();
+        extractor = new ExtensionPointsExtractor(new DependencyResolver(new File("maven-settings.xml")), false);
+        found = extractor.extract(fixtures.plugin, fixtures.openSources());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        extractor.close();
+        fixtures.close();
+    }
+
+    @Benchmark
+    public void getDocumentation(Blackhole bh) {
+        for (ClassOfInterest c : found) {
+            bh.consume(c.getDocumentation());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.jenkinsci.extension_indexer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Time it takes to scan a module, from opening its jars to the records.
+ */
+@State(Scope.Benchmark)
+public class ExtractionBenchmark {
+    /**
+     * {@code source} and {@code full} scan the {@code -sources.jar}, with {@code -enterOnly} and without.
+     * {@code binary} scans the class files, like {@code -binary}.
+     */
+    @Param({"source", "full", "binary"})
+    public String mode;
+
+    private Fixtures fixtures;
+    private ExtensionPointsExtractor extractor;
+
+    @Setup
+    public void setUp() throws IOException {
+        fixtures = Fixtures.create();
+        DependencyResolver resolver = new DependencyResolver(new File("maven-settings.xml"));
+        if (mode.equals("binary")) {
+            extractor = new BinaryExtensionPointsExtractor(resolver) {
+                @Override
+                protected File fetchSources(Module module) {
+                    return fixtures.pluginSources;
+                }
+            };
+        } else {
+            extractor = new ExtensionPointsExtractor(resolver, mode.equals("full"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        extractor.close();
+        fixtures.close();
+    }
+
+    @Benchmark
+    public List<ClassOfInterest> extract() throws IOException {
+        return extractor.extract(fixtures.plugin, mode.equals("binary") ? fixtures.openBinary() : fixtures.openSources());
+    }
+}
@@ -0,0 +1,160 @@
+package org.jenkinsci.extension_indexer;
+
+import org.apache.commons.io.FileUtils;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds what the benchmarks work on out of the fixture sources, in a temporary directory,
+ * so that they don't need the network.
+ *
+ * <p>
+ * The fixtures are a tiny stand-in for jenkins-core, and a plugin that implements its extension points
+ * and defines one of its own.
+ */
+final class Fixtures implements Closeable {
+    private final File dir;
+
+    /**
+     * Compiled core fixture, with its views.
+     */
+    final File coreJar;
+
+    /**
+     * {@code -sources.jar} of the plugin fixture.
+     */
+    final File pluginSources;
+
+    /**
+     * Compiled plugin fixture, with its views.
+     */
+    final File pluginJar;
+
+    final Module plugin = new Module.PluginModule("org.example:fixture:1.0", "https://example.org/fixture.hpi", "Fixture", null);
+
+    private Fixtures(File dir) throws IOException {
+        this.dir = dir;
+        Path fixtures = new File(dir, "fixtures").toPath();
+        copyFixtures(fixtures);
+
+        Path core = fixtures.resolve("core");
+        Path plugin = fixtures.resolve("plugin");
+        coreJar = new File(dir, "core.jar");
+        pluginSources = new File(dir, "fixture-1.0-sources.jar");
+        pluginJar = new File(dir, "fixture-1.0.jar");
+
+        jar(coreJar, compile(core, Collections.emptyList()), core);
+        jar(pluginSources, plugin, null);
+        jar(pluginJar, compile(plugin, List.of(coreJar)), plugin);
+    }
+
+    static Fixtures create() throws IOException {
+        return new Fixtures(Files.createTempDirectory("extension-indexer-fixtures").toFile());
+    }
+
+    SourceAndLibs openSources() throws IOException {
+        return new SourceAndLibs(new ZipFile(pluginSources), List.of(coreJar));
+    }
+
+    SourceAndLibs openBinary() throws IOException {
+        return new SourceAndLibs(new ZipFile(pluginJar), List.of(coreJar));
+    }
+
+    /**
+     * Copies the fixture sources out of the resources, which may be in a jar.
+     */
+    private static void copyFixtures(Path dest) throws IOException {
+        try {
+            URI uri = Fixtures.class.getResource("/fixtures").toURI();
+            if (uri.getScheme().equals("jar")) {
+                try (FileSystem fs = FileSystems.newFileSystem(uri, Collections.emptyMap())) {
+                    copy(fs.getPath("/fixtures"), dest);
+                }
+            } else {
+                copy(Paths.get(uri), dest);
+            }
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void copy(Path src, Path dest) throws IOException {
+        try (Stream<Path> files = Files.walk(src)) {
+            for (Path f : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                Path target = dest.resolve(src.relativize(f).toString());
+                Files.createDirectories(target.getParent());
+                Files.copy(f, target);
+            }
+        }
+    }
+
+    /**
+     * Compiles the Java sources in the given directory into a new directory.
+     */
+    private Path compile(Path sources, List<File> classPath) throws IOException {
+        Path classes = Files.createTempDirectory(dir.toPath(), "classes");
+        List<String> args = new ArrayList<>(List.of("-nowarn", "-d", classes.toString()));
+        if (!classPath.isEmpty()) {
+            args.add("-cp");
+            args.add(classPath.stream().map(File::getPath).collect(Collectors.joining(File.pathSeparator)));
+        }
+        try (Stream<Path> files = Files.walk(sources)) {
+            files.filter(f -> f.toString().endsWith(".java")).forEach(f -> args.add(f.toString()));
+        }
+
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac.run(null, null, null, args.toArray(new String[0])) != 0)
+            throw new IOException("Failed to compile " + sources);
+        return classes;
+    }
+
+    /**
+     * Puts all the files of a directory into a jar.
+     *
+     * @param resources
+     *      If non-null, the files other than Java sources in this directory are added too, as Maven would.
+     */
+    private static void jar(File jar, Path contents, Path resources) throws IOException {
+        try (OutputStream os = Files.newOutputStream(jar.toPath()); ZipOutputStream zip = new ZipOutputStream(os)) {
+            add(zip, contents, f -> true);
+            if (resources != null)
+                add(zip, resources, f -> !f.toString().endsWith(".java"));
+        }
+    }
+
+    private static void add(ZipOutputStream zip, Path root, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path f : files.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList())) {
+                zip.putNextEntry(new ZipEntry(root.relativize(f).toString().replace(File.separatorChar, '/')));
+                Files.copy(f, zip);
+                zip.closeEntry();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+}
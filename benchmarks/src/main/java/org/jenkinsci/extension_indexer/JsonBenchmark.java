@@ -0,0 +1,46 @@
+package org.jenkinsci.extension_indexer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Time it takes to turn the summaries of a module into the JSON written out by {@code -json}.
+ */
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+    private Fixtures fixtures;
+    private ExtensionPointsExtractor extractor;
+
+    @Setup
+    public void setUp() throws IOException {
+        fixtures = Fixtures.create();
+        extractor = new ExtensionPointsExtractor(new DependencyResolver(new File("maven-settings.xml")), false);
+
+        ExtensionPointListGenerator generator = new ExtensionPointListGenerator();
+        Module m = fixtures.plugin;
+        for (ClassOfInterest c : extractor.extract(m, fixtures.openSources())) {
+            if (c instanceof Extension)
+                m.extensions.add(new ExtensionSummary(generator.new Family(), (Extension) c));
+            else
+                m.actions.add(new ActionSummary((Action) c));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        extractor.close();
+        fixtures.close();
+    }
+
+    @Benchmark
+    public void toJSON(Blackhole bh) {
+        bh.consume(fixtures.plugin.toJSON().toString());
+    }
+}
@@ -0,0 +1,51 @@
+package org.jenkinsci.extension_indexer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Time it takes to look up the views of the classes of a module, as {@link ExtensionPointsExtractor} does,
+ * including indexing the views of the module itself.
+ */
+@State(Scope.Benchmark)
+public class ViewLookupBenchmark {
+    /**
+     * Classes of the fixtures, from the plugin up to the core ancestors.
+     */
+    private static final List<String> CLASSES = List.of(
+            "org.example.fixture.GreetingProvider",
+            "org.example.fixture.HelloProvider",
+            "org.example.fixture.HelloBuilder",
+            "org.example.fixture.HelloAction",
+            "hudson.tasks.Builder",
+            "hudson.model.Action",
+            "java.lang.Object");
+
+    private Fixtures fixtures;
+
+    @Setup
+    public void setUp() throws IOException {
+        fixtures = Fixtures.create();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public void getViewFiles(Blackhole bh) throws IOException {
+        try (SourceAndLibs sal = fixtures.openSources()) {
+            for (String c : CLASSES) {
+                bh.consume(sal.getViewFiles(c));
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package hudson;
+
+/**
+ * Marker interface that designates extensible components in Jenkins.
+ */
+public interface ExtensionPoint {
+}
@@ -0,0 +1,12 @@
+package hudson.model;
+
+/**
+ * Object that contributes additional information, behaviors, and UIs to a {@link ModelObject}.
+ *
+ * @since 1.0
+ */
+public interface Action extends ModelObject {
+    String getIconFileName();
+
+    String getUrlName();
+}
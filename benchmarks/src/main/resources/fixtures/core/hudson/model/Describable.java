@@ -0,0 +1,8 @@
+package hudson.model;
+
+/**
+ * Classes that are described by {@link Descriptor}.
+ */
+public interface Describable<T extends Describable<T>> {
+    Descriptor<T> getDescriptor();
+}
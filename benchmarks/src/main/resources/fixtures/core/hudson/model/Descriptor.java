@@ -0,0 +1,16 @@
+package hudson.model;
+
+/**
+ * Metadata about a configurable instance of a {@link Describable}.
+ *
+ * <p>
+ * Each {@link Describable} has exactly one {@link Descriptor}.
+ */
+public abstract class Descriptor<T extends Describable<T>> {
+    protected Descriptor() {
+    }
+
+    public String getDisplayName() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,8 @@
+package hudson.model;
+
+/**
+ * A model object has a human readable name.
+ */
+public interface ModelObject {
+    String getDisplayName();
+}
@@ -0,0 +1,10 @@
+package hudson.model;
+
+import hudson.ExtensionPoint;
+
+/**
+ * Marker interface for actions that are added to the top-level page.
+ * Implementations are found through {@link hudson.ExtensionPoint}.
+ */
+public interface RootAction extends Action, ExtensionPoint {
+}
@@ -0,0 +1,10 @@
+package hudson.tasks;
+
+/**
+ * One step of the whole build process.
+ */
+public interface BuildStep {
+    default boolean prebuild() {
+        return true;
+    }
+}
@@ -0,0 +1,13 @@
+package hudson.tasks;
+
+import hudson.ExtensionPoint;
+import hudson.model.Describable;
+
+/**
+ * {@link BuildStep}s that perform the actual build.
+ *
+ * <p>
+ * To register a custom {@link Builder} from a plugin, put {@code @Extension} on its descriptor.
+ */
+public abstract class Builder implements BuildStep, Describable<Builder>, ExtensionPoint {
+}
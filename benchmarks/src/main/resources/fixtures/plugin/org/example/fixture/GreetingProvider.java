@@ -0,0 +1,32 @@
+package org.example.fixture;
+
+import hudson.ExtensionPoint;
+
+/**
+ * Contributes greetings to the {@link HelloBuilder}.
+ *
+ * <p>
+ * An {@link ExtensionPoint} defined by the fixture plugin,
+ * with a second paragraph that the documentation leaves out.
+ *
+ * @author fixture
+ * @since 1.0
+ */
+public abstract class GreetingProvider implements ExtensionPoint {
+    /**
+     * Gets the greeting for the given name.
+     */
+    public abstract String greet(String name);
+
+    /**
+     * Provider used when no other is installed.
+     */
+    public static GreetingProvider fallback() {
+        return new GreetingProvider() {
+            @Override
+            public String greet(String name) {
+                return "Hi " + name;
+            }
+        };
+    }
+}
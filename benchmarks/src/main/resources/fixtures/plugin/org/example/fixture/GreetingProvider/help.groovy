@@ -0,0 +1,3 @@
+package org.example.fixture.GreetingProvider
+
+p("Contributes greetings")
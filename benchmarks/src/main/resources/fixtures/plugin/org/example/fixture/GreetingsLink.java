@@ -0,0 +1,23 @@
+package org.example.fixture;
+
+import hudson.model.RootAction;
+
+/**
+ * Link to the greetings from the top page.
+ */
+public class GreetingsLink implements RootAction {
+    @Override
+    public String getIconFileName() {
+        return "star.png";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "greetings";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Greetings";
+    }
+}
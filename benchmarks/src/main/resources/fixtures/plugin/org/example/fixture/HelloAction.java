@@ -0,0 +1,23 @@
+package org.example.fixture;
+
+import hudson.model.Action;
+
+/**
+ * Shows the greetings of a build.
+ */
+public class HelloAction implements Action {
+    @Override
+    public String getIconFileName() {
+        return "star.png";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "hello";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Greetings";
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.fixture;
+
+import hudson.model.Descriptor;
+import hudson.tasks.Builder;
+
+/**
+ * Prints a greeting as part of the build, using the {@link GreetingProvider}s.
+ */
+public class HelloBuilder extends Builder {
+    private final String name;
+
+    public HelloBuilder(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public DescriptorImpl getDescriptor() {
+        return new DescriptorImpl();
+    }
+
+    /**
+     * Descriptor of {@link HelloBuilder}.
+     */
+    public static final class DescriptorImpl extends Descriptor<Builder> {
+        @Override
+        public String getDisplayName() {
+            return "Say hello";
+        }
+    }
+}
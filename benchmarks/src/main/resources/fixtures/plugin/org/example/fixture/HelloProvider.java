@@ -0,0 +1,23 @@
+package org.example.fixture;
+
+import java.util.Locale;
+
+/**
+ * Says hello, in {@link Locale#ENGLISH English}.
+ */
+public class HelloProvider extends GreetingProvider {
+    @Override
+    public String greet(String name) {
+        return "Hello " + name;
+    }
+
+    /**
+     * Shouts hello.
+     */
+    public static class Loud extends HelloProvider {
+        @Override
+        public String greet(String name) {
+            return super.greet(name).toUpperCase(Locale.ENGLISH);
+        }
+    }
+}
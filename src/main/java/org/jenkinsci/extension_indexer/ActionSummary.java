@@ -7,13 +7,22 @@ import net.sf.json.JSONObject;
  *
  * @author Vivek Pandey
  */
-public class ActionSummary {
-    public final String action;
-    public final JSONObject json;
-    public boolean hasView;
+public class ActionSummary extends ClassSummary {
     public ActionSummary(Action action) {
-        this.action = action.getImplementationName();
-        this.hasView = action.hasView();
-        this.json = action.toJSON();
+        super(action);
+    }
+
+    /**
+     * Restores a summary from its {@link #toJSON()} form, as recorded by {@link ResultCache}.
+     */
+    ActionSummary(Module module, JSONObject json) {
+        super(module, json);
+    }
+
+    @Override
+    public JSONObject toJSON() {
+        JSONObject i = super.toJSON();
+        i.put("action",implementation);
+        return i;
     }
 }
@@ -0,0 +1,32 @@
+package org.jenkinsci.extension_indexer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes files such that a crash midway never leaves a truncated one behind, but either the old file or the new one.
+ */
+final class AtomicFiles {
+    private AtomicFiles() {}
+
+    /**
+     * Writes the content to a temporary file next to the destination, then moves it in place.
+     */
+    static void write(Path dest, Content content) throws IOException {
+        dest = dest.toAbsolutePath();
+        Files.createDirectories(dest.getParent());
+        Path tmp = Files.createTempFile(dest.getParent(), dest.getFileName().toString(), ".tmp");
+        try {
+            content.writeTo(tmp);
+            Files.move(tmp, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    interface Content {
+        void writeTo(Path file) throws IOException;
+    }
+}
@@ -0,0 +1,176 @@
+package org.jenkinsci.extension_indexer;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import org.jenkinsci.extension_indexer.Timings.Phase;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * {@link ExtensionPointsExtractor} that looks at the class files in the binary jar of a module
+ * instead of compiling its sources.
+ *
+ * <p>
+ * javac only has to read the headers of the classes, which is much faster than parsing and entering
+ * all the sources. The {@code -sources.jar} is only fetched if the module defines extension points,
+ * and only their source files are parsed, to get their Javadoc and location. Other classes have
+ * neither Javadoc nor line number in this mode.
+ */
+public class BinaryExtensionPointsExtractor extends ExtensionPointsExtractor {
+    public BinaryExtensionPointsExtractor(DependencyResolver resolver) {
+        super(resolver, false);
+    }
+
+    /**
+     * Resolves the binary jar of the module into the local repository.
+     */
+    @Override
+    public File download(Module module) throws IOException {
+        System.out.println("Resolving " + module.gav);
+        return resolver.resolveArtifact(module);
+    }
+
+    /**
+     * @param download
+     *      Binary jar of the module, which is left in place.
+     */
+    @Override
+    public SourceAndLibs resolve(Module module, File download) throws IOException, InterruptedException {
+        List<File> libs = resolver.resolve(module);
+        // the jar plays the part of the sources when looking up views, so that they are reported the same way
+        return new SourceAndLibs(new ZipFile(download), libs);
+    }
+
+    /**
+     * Records of extension point definitions are handed over last, once their sources have been looked at.
+     */
+    @Override
+    public void extract(Module module, SourceAndLibs sal, Consumer<? super ClassOfInterest> sink) throws IOException {
+        ZipFile zip = sal.getSources();
+        List<File> classPath = new ArrayList<>();
+        classPath.add(new File(zip.getName()));
+        classPath.addAll(sal.getClassPath());
+
+        try (sal) {
+            long start = module.timings.begin(Phase.SCAN);
+            JavacTask javac = createTask(classPath, Collections.emptyList());
+            List<Extension> definitions = new ArrayList<>();
+            Collector collector = new Collector(module, javac, sal, c -> {
+                if (c instanceof Extension && ((Extension) c).isDefinition())
+                    definitions.add((Extension) c);
+                else
+                    sink.accept(c);
+            });
+            Elements elements = javac.getElements();
+            for (String name : listTopLevelClasses(zip)) {
+                TypeElement e = elements.getTypeElement(name);
+                if (e != null)
+                    check(collector, e);
+            }
+            module.timings.record(Phase.SCAN, start);
+
+            addSourcesOfDefinitions(module, classPath, definitions);
+            start = module.timings.begin(Phase.SCAN);
+            definitions.forEach(sink);
+            module.timings.record(Phase.SCAN, start);
+        } catch (AssertionError e) {
+            throw new IOException("Failed to analyze "+module.gav, e);
+        }
+    }
+
+    /**
+     * Only the headers of the classes are loaded, which take up a fraction of the size of the class files.
+     */
+    @Override
+    public long estimateHeap(SourceAndLibs sal) {
+        return sal.getSourcesSize("class") + sal.getClassPathSize() / 4;
+    }
+
+    private void check(Collector collector, TypeElement e) {
+        collector.check(e, null);
+        for (TypeElement member : ElementFilter.typesIn(e.getEnclosedElements())) {
+            check(collector, member);
+        }
+    }
+
+    /**
+     * Lists the top-level classes in the jar. Member classes are reached from them, and local and anonymous
+     * classes are left out, like {@link ExtensionPointsExtractor} does when it doesn't fully analyze sources.
+     */
+    private static List<String> listTopLevelClasses(ZipFile jar) {
+        List<String> names = new ArrayList<>();
+        Enumeration<? extends ZipEntry> e = jar.entries();
+        while (e.hasMoreElements()) {
+            String n = e.nextElement().getName();
+            if (!n.endsWith(".class") || n.startsWith("META-INF/"))
+                continue;
+            n = n.substring(0, n.length() - ".class".length());
+            if (n.contains("$") || n.endsWith("module-info") || n.endsWith("package-info"))
+                continue;
+            names.add(n.replace('/', '.'));
+        }
+        return names;
+    }
+
+    /**
+     * Class files carry no Javadoc, so replace the records of the extension points this module defines
+     * with ones backed by their source files.
+     */
+    private void addSourcesOfDefinitions(Module module, List<File> classPath, List<Extension> definitions) throws IOException {
+        if (definitions.isEmpty())
+            return;
+
+        List<String> sourceFiles = new ArrayList<>();
+        for (Extension d : definitions) {
+            sourceFiles.add(d.getSourceFile());
+        }
+
+        try (ZipFile sources = new ZipFile(fetchSources(module))) {
+            Map<String,JavaFileObject> files = new LinkedHashMap<>();
+            for (String f : sourceFiles) {
+                ZipEntry entry = sources.getEntry(f);
+                if (entry != null)
+                    files.putIfAbsent(f, new ZipJavaFileObject(sources, entry));
+            }
+
+            long start = module.timings.begin(Phase.PARSE);
+            // classes compiled from sources take precedence over their class files in the jar
+            JavacTask javac = createTask(classPath, files.values());
+            javac.parse();
+            module.timings.record(Phase.PARSE, start);
+            Trees trees = Trees.instance(javac);
+            Elements elements = javac.getElements();
+
+            for (ListIterator<Extension> itr = definitions.listIterator(); itr.hasNext(); ) {
+                Extension d = itr.next();
+                TypeElement e = elements.getTypeElement(d.getImplementationName());
+                TreePath path = e != null ? trees.getPath(e) : null;
+                if (path != null)
+                    itr.set(new Extension(module, javac, trees, e, path, e, d.views));
+            }
+        }
+    }
+
+    /**
+     * Resolves the {@code -sources.jar} of the module, which is left in place.
+     */
+    protected File fetchSources(Module module) throws IOException {
+        return SourceAndLibs.fetchSources(module, resolver);
+    }
+}
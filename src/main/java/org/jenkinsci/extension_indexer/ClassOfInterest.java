@@ -6,16 +6,15 @@ import com.sun.source.tree.ExpressionTree;
 import com.sun.source.util.JavacTask;
 import com.sun.source.util.TreePath;
 import com.sun.source.util.Trees;
-import net.sf.json.JSONObject;
 import org.jsoup.Jsoup;
 import org.jsoup.safety.Safelist;
 
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import java.io.File;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,7 +36,7 @@ public abstract class ClassOfInterest {
     public final JavacTask javac;
 
     /**
-     * {@link TreePath} that leads to {@link #implementation}
+     * {@link TreePath} that leads to {@link #implementation}, or null if it was read from a class file.
      */
     public final TreePath implPath;
 
@@ -58,7 +57,7 @@ public abstract class ClassOfInterest {
      * Jelly/groovy views associated to this class, including those defined for the ancestor types.
      *
      * Keyed by the view name (which is the base portion of the view file name). The value is the fully qualified
-     * resource name.
+     * resource name. Unmodifiable, as it's shared with other records.
      */
     public final Map<String, String> views;
 
@@ -73,14 +72,14 @@ public abstract class ClassOfInterest {
 
 
     /**
-     * Returns the {@link ClassTree} representation of {@link #implementation}.
+     * Returns the {@link ClassTree} representation of {@link #implementation}, or null if it was read from a class file.
      */
     public ClassTree getClassTree() {
-        return (ClassTree) implPath.getLeaf();
+        return implPath == null ? null : (ClassTree) implPath.getLeaf();
     }
 
     public CompilationUnitTree getCompilationUnit() {
-        return implPath.getCompilationUnit();
+        return implPath == null ? null : implPath.getCompilationUnit();
     }
 
     /**
@@ -88,6 +87,15 @@ public abstract class ClassOfInterest {
      * that match the package name portion.
      */
     public String getSourceFile() {
+        if (implPath == null) {
+            // read from a class file, so assume the usual layout where the file is named after the top-level class
+            Element top = implementation;
+            while (top.getEnclosingElement().getKind() != ElementKind.PACKAGE)
+                top = top.getEnclosingElement();
+            PackageElement pkg = (PackageElement) top.getEnclosingElement();
+            return (pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString().replace('.', '/') + '/') + top.getSimpleName() + ".java";
+        }
+
         ExpressionTree packageName = getCompilationUnit().getPackageName();
         String pkg = packageName == null ? "" : packageName.toString().replace('.', '/') + '/';
 
@@ -96,9 +104,12 @@ public abstract class ClassOfInterest {
     }
 
     /**
-     * Gets the line number in the source file where this implementation was defined.
+     * Gets the line number in the source file where this implementation was defined,
+     * or -1 if it was read from a class file.
      */
     public long getLineNumber() {
+        if (implPath == null)
+            return -1;
         return getCompilationUnit().getLineMap().getLineNumber(
                 trees.getSourcePositions().getStartPosition(getCompilationUnit(), getClassTree()));
     }
@@ -152,10 +163,6 @@ public abstract class ClassOfInterest {
         return implementation.getQualifiedName().toString();
     }
 
-    public void addViews(Map<String, String> views){
-        this.views.putAll(views);
-    }
-
     /**
      * Returns true if there are jelly files
      */
@@ -163,25 +170,4 @@ public abstract class ClassOfInterest {
         return views.size() > 0;
     }
 
-
-    public JSONObject toJSON(){
-        JSONObject i = new JSONObject();
-        i.put("className",getImplementationName());
-        i.put("module",module.gav);
-        i.put("javadoc",getJavadoc());
-        i.put("documentation", getDocumentation());
-        i.put("sourceFile",getSourceFile());
-        i.put("lineNumber",getLineNumber());
-        i.put("hasView", hasView());
-        Set<Map<String,String>> vs = new HashSet<>();
-        for (Map.Entry<String, String> entry : views.entrySet()) {
-            Map<String,String> v = new HashMap<>();
-            v.put("name", entry.getKey());
-            v.put("source", entry.getValue());
-            vs.add(v);
-        }
-        i.put("views",vs);
-        return i;
-
-    }
 }
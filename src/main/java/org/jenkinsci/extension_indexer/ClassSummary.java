@@ -0,0 +1,90 @@
+package org.jenkinsci.extension_indexer;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Common parts between {@link ExtensionSummary} and {@link ActionSummary}.
+ *
+ * <p>
+ * Captures what's written out about a {@link ClassOfInterest} as plain fields, so that the compiler session
+ * can be let go of. The JSON form is only built when it's written out.
+ */
+public abstract class ClassSummary {
+    /**
+     * Back reference to the module where this class was found.
+     */
+    public final Module module;
+
+    /**
+     * FQCN of {@link ClassOfInterest#implementation}.
+     */
+    public final String implementation;
+
+    public final String javadoc;
+
+    public final String documentation;
+
+    public final String sourceFile;
+
+    public final long lineNumber;
+
+    public final Map<String,String> views;
+
+    public final boolean hasView;
+
+    ClassSummary(ClassOfInterest c) {
+        this.module = c.module;
+        this.implementation = c.getImplementationName();
+        this.javadoc = c.getJavadoc();
+        this.documentation = c.getDocumentation();
+        this.sourceFile = c.getSourceFile();
+        this.lineNumber = c.getLineNumber();
+        this.views = c.views;
+        this.hasView = c.hasView();
+    }
+
+    /**
+     * Restores a summary from its {@link #toJSON()} form.
+     */
+    ClassSummary(Module module, JSONObject json) {
+        this.module = module;
+        this.implementation = json.getString("className");
+        this.javadoc = json.optString("javadoc", null);
+        this.documentation = json.optString("documentation", null);
+        this.sourceFile = json.getString("sourceFile");
+        this.lineNumber = json.getLong("lineNumber");
+        this.hasView = json.getBoolean("hasView");
+        this.views = new HashMap<>();
+        for (Object o : json.getJSONArray("views")) {
+            JSONObject v = (JSONObject) o;
+            views.put(Names.intern(v.getString("name")), Names.intern(v.getString("source")));
+        }
+    }
+
+    /**
+     * Gets the information captured in this object as JSON.
+     */
+    public JSONObject toJSON() {
+        JSONObject i = new JSONObject();
+        i.put("className",implementation);
+        i.put("module",module.gav);
+        i.put("javadoc",javadoc);
+        i.put("documentation",documentation);
+        i.put("sourceFile",sourceFile);
+        i.put("lineNumber",lineNumber);
+        i.put("hasView",hasView);
+        JSONArray vs = new JSONArray();
+        for (Map.Entry<String, String> entry : views.entrySet()) {
+            JSONObject v = new JSONObject();
+            v.put("name", entry.getKey());
+            v.put("source", entry.getValue());
+            vs.add(v);
+        }
+        i.put("views",vs);
+        return i;
+    }
+}
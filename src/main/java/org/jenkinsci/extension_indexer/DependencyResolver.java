@@ -0,0 +1,237 @@
+package org.jenkinsci.extension_indexer;
+
+import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.apache.maven.settings.Mirror;
+import org.apache.maven.settings.Server;
+import org.apache.maven.settings.Settings;
+import org.apache.maven.settings.building.DefaultSettingsBuilderFactory;
+import org.apache.maven.settings.building.DefaultSettingsBuildingRequest;
+import org.apache.maven.settings.building.SettingsBuildingException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositoryException;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.connector.basic.BasicRepositoryConnectorFactory;
+import org.eclipse.aether.impl.DefaultServiceLocator;
+import org.eclipse.aether.repository.LocalArtifactRequest;
+import org.eclipse.aether.repository.LocalArtifactResult;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactDescriptorRequest;
+import org.eclipse.aether.resolution.ArtifactDescriptorResult;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.DependencyRequest;
+import org.eclipse.aether.spi.connector.RepositoryConnectorFactory;
+import org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import org.eclipse.aether.transport.file.FileTransporterFactory;
+import org.eclipse.aether.transport.http.HttpTransporterFactory;
+import org.eclipse.aether.util.artifact.JavaScopes;
+import org.eclipse.aether.util.filter.DependencyFilterUtils;
+import org.eclipse.aether.util.repository.AuthenticationBuilder;
+import org.eclipse.aether.util.repository.DefaultAuthenticationSelector;
+import org.eclipse.aether.util.repository.DefaultMirrorSelector;
+import org.eclipse.aether.util.repository.SimpleArtifactDescriptorPolicy;
+import org.jenkinsci.extension_indexer.Timings.Phase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves the compile-time dependencies of {@link Module}s in-process with Maven Resolver,
+ * instead of forking {@code mvn dependency:copy-dependencies} for each one of them.
+ *
+ * <p>
+ * A single instance is meant to be shared by all the threads, so that they share one
+ * {@link RepositorySystemSession} and local repository.
+ *
+ * <p>
+ * The artifacts of the modules themselves are resolved into the local repository too, where they are kept
+ * for later runs. Released artifacts never change, so once there, they're never downloaded again,
+ * and whatever is worked out from one, like {@link ResultCache} entries, holds for good.
+ */
+public class DependencyResolver {
+    static final String DEFAULT_REPOSITORY_URL = "https://repo.jenkins-ci.org/public/";
+
+    private final RepositorySystem system;
+    private final RepositorySystemSession session;
+    /**
+     * {@link #session} that fails on a missing or broken POM, for reading the POMs of the modules themselves.
+     * The other one ignores those, so that a broken POM deep down the dependency tree doesn't sink the module,
+     * but without its own POM, a module would just come out with no dependencies.
+     */
+    private final RepositorySystemSession strictSession;
+    private final List<RemoteRepository> repositories;
+    private final String repositoryUrl;
+
+    /**
+     * @param settingsFile
+     *      Maven {@code settings.xml} to take mirrors, credentials and the local repository location from.
+     *      Ignored if it doesn't exist.
+     */
+    public DependencyResolver(File settingsFile) throws IOException {
+        this(settingsFile, DEFAULT_REPOSITORY_URL);
+    }
+
+    /**
+     * @param repositoryUrl
+     *      Maven repository to resolve from, which may be a {@code file:} URL, like a stand-in for tests.
+     *      Mirrors in the settings only apply to {@link #DEFAULT_REPOSITORY_URL}, as any other repository
+     *      is asked for on purpose.
+     */
+    @SuppressWarnings("deprecation") // the service locator is the only wiring that works without a DI container
+    public DependencyResolver(File settingsFile, String repositoryUrl) throws IOException {
+        String url = repositoryUrl.endsWith("/") ? repositoryUrl : repositoryUrl + "/";
+        Settings settings = loadSettings(settingsFile);
+
+        DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator();
+        locator.addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class);
+        locator.addService(TransporterFactory.class, FileTransporterFactory.class);
+        locator.addService(TransporterFactory.class, HttpTransporterFactory.class);
+        system = locator.getService(RepositorySystem.class);
+
+        DefaultRepositorySystemSession s = MavenRepositorySystemUtils.newSession();
+        File localRepository = settings.getLocalRepository() != null
+                ? new File(settings.getLocalRepository())
+                : new File(System.getProperty("user.home"), ".m2/repository");
+        s.setLocalRepositoryManager(system.newLocalRepositoryManager(s, new LocalRepository(localRepository)));
+        s.setSystemProperties(System.getProperties());
+        s.setConfigProperty("aether.connector.basic.threads", DOWNLOAD_THREADS);
+
+        DefaultMirrorSelector mirrors = new DefaultMirrorSelector();
+        if (url.equals(DEFAULT_REPOSITORY_URL)) {
+            for (Mirror m : settings.getMirrors()) {
+                mirrors.add(m.getId(), m.getUrl(), m.getLayout(), false, m.isBlocked(), m.getMirrorOf(), m.getMirrorOfLayouts());
+            }
+        }
+        s.setMirrorSelector(mirrors);
+
+        DefaultAuthenticationSelector auths = new DefaultAuthenticationSelector();
+        for (Server server : settings.getServers()) {
+            auths.add(server.getId(), new AuthenticationBuilder().addUsername(server.getUsername()).addPassword(server.getPassword()).build());
+        }
+        s.setAuthenticationSelector(auths);
+
+        s.setReadOnly();
+        session = s;
+
+        DefaultRepositorySystemSession strict = new DefaultRepositorySystemSession(s);
+        strict.setArtifactDescriptorPolicy(new SimpleArtifactDescriptorPolicy(false, false));
+        strict.setReadOnly();
+        strictSession = strict;
+
+        repositories = system.newResolutionRepositories(session,
+                List.of(new RemoteRepository.Builder("repo.jenkins-ci.org", "default", url).build()));
+        String effective = repositories.get(0).getUrl();
+        this.repositoryUrl = effective.endsWith("/") ? effective : effective + "/";
+    }
+
+    /**
+     * Gets the URL of the Maven repository that artifacts are resolved from, which ends with a slash.
+     * This is the mirror of the repository given, if there's one.
+     */
+    public String getRepositoryUrl() {
+        return repositoryUrl;
+    }
+
+    private static Settings loadSettings(File settingsFile) throws IOException {
+        if (!settingsFile.exists())
+            return new Settings();
+        try {
+            return new DefaultSettingsBuilderFactory().newInstance().build(new DefaultSettingsBuildingRequest()
+                    .setUserSettingsFile(settingsFile)
+                    .setSystemProperties(System.getProperties())).getEffectiveSettings();
+        } catch (SettingsBuildingException e) {
+            throw new IOException("Failed to load " + settingsFile, e);
+        }
+    }
+
+    /**
+     * Resolves the compile, provided and system scoped dependencies of the given module, transitively,
+     * like {@code mvn dependency:copy-dependencies -DincludeScope=compile} would.
+     *
+     * @return
+     *      Jar files in the local repository. The module itself is not included.
+     */
+    public List<File> resolve(Module module) throws IOException {
+        try {
+            long start = module.timings.begin(Phase.POM);
+            ArtifactDescriptorResult descriptor = system.readArtifactDescriptor(strictSession,
+                    new ArtifactDescriptorRequest(new DefaultArtifact(module.gav), repositories, null));
+            module.timings.record(Phase.POM, start);
+
+            CollectRequest collect = new CollectRequest();
+            collect.setRootArtifact(descriptor.getArtifact());
+            collect.setDependencies(descriptor.getDependencies());
+            collect.setManagedDependencies(descriptor.getManagedDependencies());
+            collect.setRepositories(repositories);
+
+            DependencyRequest request = new DependencyRequest(collect, DependencyFilterUtils.classpathFilter(JavaScopes.COMPILE));
+            start = module.timings.begin(Phase.RESOLVE);
+            List<File> jars = new ArrayList<>();
+            for (ArtifactResult r : system.resolveDependencies(session, request).getArtifactResults()) {
+                jars.add(r.getArtifact().getFile());
+            }
+            module.timings.record(Phase.RESOLVE, start);
+            return jars;
+        } catch (RepositoryException e) {
+            throw new IOException("Failed to resolve dependencies of " + module.gav, e);
+        }
+    }
+
+    /**
+     * Resolves the jar of the given module itself.
+     */
+    public File resolveArtifact(Module module) throws IOException {
+        return resolveArtifact(module, new DefaultArtifact(module.gav));
+    }
+
+    /**
+     * Resolves the {@code -sources.jar} of the given module.
+     */
+    public File resolveSources(Module module) throws IOException {
+        return resolveArtifact(module, getSourcesArtifact(module));
+    }
+
+    /**
+     * Looks up the {@code -sources.jar} of the given module in the local repository, without downloading it.
+     *
+     * @return
+     *      null if it hasn't been resolved yet.
+     */
+    public File findSources(Module module) {
+        LocalArtifactResult r = session.getLocalRepositoryManager().find(session,
+                new LocalArtifactRequest(getSourcesArtifact(module), repositories, null));
+        return r.isAvailable() ? r.getFile() : null;
+    }
+
+    private static DefaultArtifact getSourcesArtifact(Module module) {
+        return new DefaultArtifact(module.group, module.artifactId, "sources", "jar", module.version);
+    }
+
+    /**
+     * @return
+     *      The artifact in the local repository, which is to be left in place.
+     */
+    private File resolveArtifact(Module module, DefaultArtifact artifact) throws IOException {
+        try {
+            long start = module.timings.begin(Phase.DOWNLOAD);
+            File jar = system.resolveArtifact(session, new ArtifactRequest(artifact, repositories, null))
+                    .getArtifact().getFile();
+            module.timings.record(Phase.DOWNLOAD, start);
+            return jar;
+        } catch (ArtifactResolutionException e) {
+            throw new IOException("Failed to resolve " + artifact, e);
+        }
+    }
+
+    /**
+     * Number of artifacts each resolution downloads concurrently.
+     */
+    private static final int DOWNLOAD_THREADS = 8;
+}
@@ -0,0 +1,102 @@
+package org.jenkinsci.extension_indexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * On-disk cache of what's downloaded by URL, like the update center metadata and plugin archives.
+ *
+ * <p>
+ * Each download is kept along with its {@code ETag} and {@code Last-Modified} headers, which the next request
+ * for it sends back, so that the server only sends it again if it has changed.
+ * The artifacts that modules are scanned from don't go through here, as they are resolved into
+ * the local Maven repository, which keeps them for good.
+ */
+public class DownloadCache {
+    private final File dir;
+
+    public DownloadCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Gets the current content of the given URL, downloading it only if it changed since it was cached.
+     * {@code file:} URLs are used in place.
+     *
+     * @return
+     *      The file in the cache, which is to be left as is.
+     */
+    public File get(URL url) throws IOException {
+        if (url.getProtocol().equals("file")) {
+            try {
+                return new File(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid URL " + url, e);
+            }
+        }
+
+        File file = getFile(url);
+        Path headersFile = new File(file.getPath() + ".headers").toPath();
+        Properties headers = new Properties();
+        if (file.exists() && Files.exists(headersFile)) {
+            try (Reader r = Files.newBufferedReader(headersFile, StandardCharsets.UTF_8)) {
+                headers.load(r);
+            }
+        }
+
+        URLConnection con = url.openConnection();
+        if (headers.containsKey(ETAG))
+            con.setRequestProperty("If-None-Match", headers.getProperty(ETAG));
+        if (headers.containsKey(LAST_MODIFIED))
+            con.setRequestProperty("If-Modified-Since", headers.getProperty(LAST_MODIFIED));
+        if (con instanceof HttpURLConnection) {
+            int code = ((HttpURLConnection) con).getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && !headers.isEmpty())
+                return file;
+            if (code != HttpURLConnection.HTTP_OK)
+                throw new IOException("Server returned HTTP response code: " + code + " for URL: " + url);
+        }
+
+        AtomicFiles.write(file.toPath(), tmp -> {
+            try (InputStream is = con.getInputStream()) {
+                Files.copy(is, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // the old headers go before the new content comes in, so that they never vouch for it
+            Files.deleteIfExists(headersFile);
+        });
+
+        headers.clear();
+        if (con.getHeaderField(ETAG) != null)
+            headers.setProperty(ETAG, con.getHeaderField(ETAG));
+        if (con.getHeaderField(LAST_MODIFIED) != null)
+            headers.setProperty(LAST_MODIFIED, con.getHeaderField(LAST_MODIFIED));
+        AtomicFiles.write(headersFile, tmp -> {
+            try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                headers.store(w, url.toString());
+            }
+        });
+        return file;
+    }
+
+    private File getFile(URL url) {
+        String path = url.getHost() + url.getPath();
+        if (url.getQuery() != null)
+            path += "-" + Integer.toHexString(url.getQuery().hashCode());
+        return new File(dir, path);
+    }
+
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+}
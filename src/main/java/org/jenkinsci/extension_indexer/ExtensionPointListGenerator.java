@@ -4,40 +4,65 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.UnknownHostException;
 import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+import org.jenkinsci.extension_indexer.Timings.Outcome;
+import org.jenkinsci.extension_indexer.Timings.Phase;
 import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 
 import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
 import net.sf.json.JSONObject;
+import net.sf.json.util.JSONBuilder;
 
 /**
  * Command-line tool to list up extension points and their implementations into a JSON file.
@@ -47,8 +72,9 @@ import net.sf.json.JSONObject;
 public class ExtensionPointListGenerator {
     /**
      * All known {@link Family}s keyed by {@link Family#definition}'s FQCN.
+     * Modules are discovered concurrently, so this and the {@link Family}s in it are thread-safe without locking.
      */
-    private final Map<String,Family> families = new HashMap<>();
+    private final Map<String,Family> families = new ConcurrentHashMap<>();
     /**
      * All the modules we scanned keyed by its {@link Module#artifact}
      */
@@ -66,17 +92,106 @@ public class ExtensionPointListGenerator {
     @Option(name="-updateCenterJson",usage="Update center's json")
     public String updateCenterJsonFile = "https://updates.jenkins.io/current/update-center.actual.json";
 
+    @Option(name="-cache",usage="Remember what was found in each plugin release in this directory, so that unchanged plugins are not scanned again. Downloads like the update center metadata are kept there too, and only downloaded again if they changed")
+    public File cacheDir;
+
+    @Option(name="-incremental",usage="Only scan modules whose version changed since the given output of an earlier -json run, and take the rest from it")
+    public File previousJsonFile;
+
+    @Option(name="-repository",usage="Maven repository to get the modules and their dependencies from, which may be a file: URL. The mirrors in maven-settings.xml only apply to the default one")
+    public String repositoryUrl = DependencyResolver.DEFAULT_REPOSITORY_URL;
+
+    @Option(name="-enterOnly",usage="Have javac only enter the classes instead of analyzing method bodies. Faster, but misses extensions implemented by anonymous and local classes")
+    public boolean enterOnly;
+
+    @Option(name="-binary",usage="Look at the class files in the binary jars instead of compiling the sources. Much faster, but only extension point definitions get Javadoc and line numbers")
+    public boolean binary;
+
+    @Option(name="-downloadThreads",usage="Number of modules to download at once")
+    public int downloadThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+    @Option(name="-resolveThreads",usage="Number of modules to resolve the dependencies of at once")
+    public int resolveThreads = Runtime.getRuntime().availableProcessors();
+
+    @Option(name="-analyzeThreads",usage="Number of modules to compile and scan at once")
+    public int analyzeThreads = Runtime.getRuntime().availableProcessors();
+
+    @Option(name="-virtualThreads",usage="Download and resolve on virtual threads, so that -downloadThreads and -resolveThreads can be in the hundreds. Needs Java 21 or later")
+    public boolean virtualThreads;
+
+    @Option(name="-analysisHeap",usage="Heap in megabytes that the analyses running at once may take up, as estimated from the size of the modules. Defaults to three quarters of the maximum heap")
+    public long analysisHeap;
+
+    @Option(name="-largestFirst",usage="Start with the plugins that have the largest sources, so that none of them is left to hold up the end of the run")
+    public boolean largestFirst;
+
+    @Option(name="-retries",usage="Number of times to retry a module whose download or dependency resolution fails on what looks like a network glitch")
+    public int retries = 3;
+
+    @Option(name="-retryDelay",usage="Seconds to wait before retrying a module the first time. The wait doubles with each retry")
+    public int retryDelay = 10;
+
+    @Option(name="-journal",usage="Write down what was found in each module to this file as soon as it's scanned, so that the run can be resumed if it dies. Deleted once the run completes")
+    public File journalFile;
+
+    @Option(name="-resume",usage="Take what an earlier run that died had written to the -journal file, and only scan the modules that it didn't get to")
+    public boolean resume;
+
+    @Option(name="-restart",usage="Scan all the modules again even if the -journal file holds the results of an earlier run that died, which are thrown away")
+    public boolean restart;
+
+    @Option(name="-report",usage="Write how long each phase took for each module to run-report.json and run-report.csv in this directory")
+    public File reportDir;
+
     @Argument
     public List<String> args = new ArrayList<>();
 
-    private ExtensionPointsExtractor extractor = new ExtensionPointsExtractor();
+    private ExtensionPointsExtractor extractor;
+
+    /**
+     * Admits analyses in {@link #processPlugins(Collection)}.
+     */
+    private HeapBudget heapBudget;
+
+    /**
+     * Non-null if {@link #cacheDir} is given.
+     */
+    private ResultCache cache;
+
+    /**
+     * Memoized {@link #getFingerprint()}.
+     */
+    private String fingerprint;
+
+    /**
+     * Non-null if {@link #cacheDir} is given.
+     */
+    private DownloadCache downloadCache;
+
+    /**
+     * {@code artifacts} section of {@link #previousJsonFile}, keyed by GAV.
+     * Non-null if that option is given and the file was written with the same {@link #getFingerprint()}.
+     */
+    private JSONObject previousArtifacts;
+
+    /**
+     * Non-null if {@link #journalFile} is given.
+     */
+    private Journal journal;
+
+    /**
+     * Records of {@link #journalFile} keyed by GAV, when resuming.
+     */
+    private Map<String,JSONObject> journaled = Collections.emptyMap();
 
     private Comparator<ExtensionSummary> IMPLEMENTATION_SORTER = new Comparator<>() {
         @Override
         public int compare(ExtensionSummary o1, ExtensionSummary o2) {
-            int moduleOrder = o1.module.compareTo(o2.module);
-            if (moduleOrder != 0) {
-                return moduleOrder;
+            if (o1.module != o2.module) {
+                int moduleOrder = o1.module.compareTo(o2.module);
+                if (moduleOrder != 0) {
+                    return moduleOrder;
+                }
             }
             if (o1.className == null || o2.className == null) {
                 return o1.className == null ? (o2.className == null ? 0 : 1) : -1;
@@ -91,8 +206,8 @@ public class ExtensionPointListGenerator {
     @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "Not worth refactor to hide internal representation")
     public class Family implements Comparable<Family> {
         // from definition
-        ExtensionSummary definition;
-        private final SortedSet<ExtensionSummary> implementations = new TreeSet<>(IMPLEMENTATION_SORTER);
+        volatile ExtensionSummary definition;
+        private final SortedSet<ExtensionSummary> implementations = new ConcurrentSkipListSet<>(IMPLEMENTATION_SORTER);
 
         public String getName() {
             return definition.extensionPoint;
@@ -191,7 +306,7 @@ public class ExtensionPointListGenerator {
 
     public JSONObject getJsonUrl(String url) throws IOException {
         try (
-                InputStream is = new URL(url).openStream();
+                InputStream is = openStream(new URL(url));
                 InputStreamReader isr = new InputStreamReader(is, StandardCharsets.UTF_8);
                 BufferedReader bufferedReader = new BufferedReader(isr)
             ) {
@@ -204,59 +319,112 @@ public class ExtensionPointListGenerator {
         }
     }
 
+    /**
+     * Opens the given URL, through {@link #downloadCache} if there's one.
+     */
+    private InputStream openStream(URL url) throws IOException {
+        return downloadCache != null ? Files.newInputStream(downloadCache.get(url).toPath()) : url.openStream();
+    }
+
     public void run() throws Exception {
+        long start = System.nanoTime();
+        if (cacheDir!=null)
+            downloadCache = new DownloadCache(new File(cacheDir, "downloads"));
+
         JSONObject updateCenterJson = getJsonUrl(updateCenterJsonFile);
 
         if (asciidocOutputDir ==null && jsonFile==null && pluginsDir ==null)
             throw new IllegalStateException("Nothing to do. Either -adoc, -json, or -pipeline is needed");
-
-        discover(addModule(new Module.CoreModule(updateCenterJson.getJSONObject("core").getString("version"))));
-
-        processPlugins(updateCenterJson.getJSONObject("plugins").values());
-
-        if (jsonFile!=null) {
-            JSONObject all = new JSONObject();
-            for (Family f : families.values()) {
-                if (f.definition==null)     continue;   // skip undefined extension points
-                JSONObject o = JSONObject.fromObject(f.definition.json);
-
-                JSONArray use = new JSONArray();
-                for (ExtensionSummary impl : f.implementations)
-                    use.add(impl.json);
-                o.put("implementations", use);
-
-                all.put(f.getName(),o);
+        if (resume && journalFile==null)
+            throw new IllegalStateException("-resume needs -journal");
+        if (resume && restart)
+            throw new IllegalStateException("-resume and -restart can't be used together");
+        // the journal may be all that's left of a long run, so it's only thrown away if asked to
+        if (journalFile!=null && journalFile.length()>0 && !resume && !restart)
+            throw new IllegalStateException(journalFile + " holds the results of an earlier run. Use -resume to carry on with it or -restart to throw them away");
+
+        DependencyResolver resolver = new DependencyResolver(new File("maven-settings.xml"), repositoryUrl);
+        extractor = binary ? new BinaryExtensionPointsExtractor(resolver) : new ExtensionPointsExtractor(resolver, !enterOnly);
+
+        if (cacheDir!=null)
+            cache = new ResultCache(cacheDir, getFingerprint());
+
+        if (previousJsonFile!=null) {
+            JSONObject previous = JSONObject.fromObject(Files.readString(previousJsonFile.toPath(), StandardCharsets.UTF_8));
+            if (getFingerprint().equals(previous.optString("fingerprint"))) {
+                previousArtifacts = previous.getJSONObject("artifacts");
+                System.out.printf("Reusing the results of %d modules from %s where unchanged%n", previousArtifacts.size(), previousJsonFile);
+            } else {
+                System.err.println("Not reusing " + previousJsonFile + ", which was written by another version or with other settings");
             }
+        }
 
-            // this object captures information about modules where extensions are defined/found.
-            final JSONObject artifacts = new JSONObject();
-            for (Module m : modules.values()) {
-                artifacts.put(m.gav, m.toJSON());
+        if (journalFile!=null) {
+            if (resume) {
+                journaled = Journal.load(journalFile, getFingerprint());
+                System.out.printf("Resuming with the results of %d modules from %s%n", journaled.size(), journalFile);
             }
+            journal = new Journal(journalFile, getFingerprint(), journaled.values());
+        }
 
-            JSONObject container = new JSONObject();
-            container.put("extensionPoints",all);
-            container.put("artifacts",artifacts);
+        try {
+            discover(addModule(new Module.CoreModule(updateCenterJson.getJSONObject("core").getString("version"))));
 
-            Files.writeString(jsonFile.toPath(), container.toString(2), StandardCharsets.UTF_8);
+            processPlugins(updateCenterJson.getJSONObject("plugins").values());
+        } finally {
+            extractor.close();
+            if (journal != null)
+                journal.close();
+        }
+
+        if (jsonFile!=null) {
+            generateJson();
         }
 
         if (asciidocOutputDir !=null) {
             generateAsciidocReport();
         }
+
+        if (reportDir !=null) {
+            new RunReport(modules.values(), System.nanoTime() - start).write(reportDir);
+        }
+
+        if (journal != null)
+            journal.delete();
     }
 
     /**
-     * Walks over the plugins, record {@link #modules} and call {@link #discover(Module)}.
-     * @param plugins
+     * Identifies the indexer build and settings that produce the results, so that {@link ResultCache} entries
+     * recorded by another version aren't mistaken for ours.
+     */
+    private String getFingerprint() throws IOException {
+        if (fingerprint == null)
+            fingerprint = "v" + ResultCache.FORMAT_VERSION + "-" + ResultCache.getBuildChecksum() + (binary ? "-binary" : enterOnly ? "-enterOnly" : "");
+        return fingerprint;
+    }
+
+    /**
+     * Walks over the plugins, record {@link #modules} and discover them.
+     *
+     * <p>
+     * Each module goes through a pipeline of stages, namely download, dependency resolution, analysis
+     * and aggregation into {@link #families}. Each stage has its own thread pool, so that downloads keep going
+     * while the CPUs are busy compiling. The stages are connected by bounded queues, and a stage that gets ahead
+     * waits for the next one to catch up, so that the work in flight doesn't pile up in memory.
      */
     private void processPlugins(Collection<JSONObject> plugins) throws Exception {
-        int availableProcessors = Runtime.getRuntime().availableProcessors();
-        int nThreads = availableProcessors * 3;
-        System.out.printf("Running with %d threads%n", nThreads);
-        ExecutorService svc = Executors.newFixedThreadPool(nThreads);
+        ExecutorService downloads = newIoStage(downloadThreads);
+        ExecutorService resolutions = newIoStage(resolveThreads);
+        System.out.printf("Running with %d download, %d resolution and %d analysis %s%n", downloadThreads, resolveThreads, analyzeThreads,
+                virtualThreads ? "tasks, downloading and resolving on virtual threads" : "threads");
+        ExecutorService analyses = newStage(analyzeThreads);
+        // filing into families is cheap, and modules are only written to the cache from here
+        ExecutorService aggregation = newStage(1);
+        heapBudget = new HeapBudget(analysisHeap > 0 ? analysisHeap * 1024 * 1024 : Runtime.getRuntime().maxMemory() / 4 * 3);
+        System.out.printf("Analyzing within a heap budget of %d MB%n", heapBudget.getCapacity() / 1024 / 1024);
         try {
-            Set<Future<?>> futures = new HashSet<>();
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            List<Module> toScan = new ArrayList<>();
             for (final JSONObject plugin : plugins) {
                 final String artifactId = plugin.getString("name");
                 if (!args.isEmpty()) {
@@ -268,33 +436,333 @@ public class ExtensionPointListGenerator {
                     continue;   // skip them to remove noise
                 }
 
-                futures.add(svc.submit(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            System.out.println(artifactId);
-                            if (asciidocOutputDir !=null || jsonFile!=null) {
-                                discover(addModule(new Module.PluginModule(plugin.getString("gav"), plugin.getString("url"), plugin.getString("title"), plugin.optString("scm"))));
-                            }
-                            if (pluginsDir!=null) {
-                                FileUtils.copyURLToFile(
-                                        new URL(plugin.getString("url")),
-                                        new File(pluginsDir, FilenameUtils.getName(plugin.getString("url")))
-                                );
-                            }
-                        } catch (Exception e) {
-                            System.err.println("Failed to process "+artifactId);
-                            // TODO record problem with this plugin so we can report on it
-                            e.printStackTrace();
-                        }
+                System.out.println(artifactId);
+                try {
+                    if (asciidocOutputDir !=null || jsonFile!=null) {
+                        Module m = addModule(new Module.PluginModule(plugin.getString("gav"), plugin.getString("url"), plugin.getString("title"), plugin.optString("scm")));
+                        if (!reuse(m))
+                            toScan.add(m);
                     }
-                }));
+                    if (pluginsDir!=null) {
+                        futures.add(reportFailure(artifactId, CompletableFuture.completedFuture(plugin.getString("url"))
+                                .thenApplyAsync(step(url -> {
+                                    File dest = new File(pluginsDir, FilenameUtils.getName(url));
+                                    if (downloadCache != null)
+                                        FileUtils.copyFile(downloadCache.get(new URL(url)), dest);
+                                    else
+                                        FileUtils.copyURLToFile(new URL(url), dest);
+                                    return null;
+                                }), downloads)));
+                    }
+                } catch (Exception e) {
+                    System.err.println("Failed to process "+artifactId);
+                    e.printStackTrace();
+                }
+            }
+
+            if (largestFirst)
+                sortLargestFirst(toScan, extractor.resolver, downloads);
+
+            for (final Module m : toScan) {
+                futures.add(reportFailure(m, scan(m, downloads, resolutions, analyses)
+                        .thenAcceptAsync(this::aggregate, aggregation)));
             }
-            for (Future<?> f : futures) {
-                f.get();
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+            List<String> failed = new ArrayList<>();
+            for (Module m : toScan) {
+                if (m.timings.getOutcome() == Outcome.FAILED)
+                    failed.add(m.gav);
             }
+            if (!failed.isEmpty())
+                System.err.printf("Failed to process %d modules: %s%n", failed.size(), String.join(", ", failed));
         } finally {
-            svc.shutdown();
+            downloads.shutdown();
+            resolutions.shutdown();
+            analyses.shutdown();
+            aggregation.shutdown();
+        }
+    }
+
+    /**
+     * Downloads, resolves and analyzes the module through the stages of {@link #processPlugins(Collection)}.
+     *
+     * <p>
+     * If fetching something fails on what looks like a network glitch, the module is set out again after a while,
+     * which doubles with each retry, up to {@link #retries} times.
+     */
+    private CompletableFuture<Module> scan(Module m, ExecutorService downloads, ExecutorService resolutions, ExecutorService analyses) {
+        m.timings.newAttempt();
+        return CompletableFuture.completedFuture(m)
+                .thenApplyAsync(step(extractor::download), downloads)
+                .thenApplyAsync(step(download -> extractor.resolve(m, download)), resolutions)
+                .thenApplyAsync(step(sal -> analyze(m, sal)), analyses)
+                .handle((r, e) -> {
+                    if (e == null)
+                        return CompletableFuture.completedFuture(r);
+                    int attempts = m.timings.getAttempts();
+                    if (attempts > retries || !FETCH_PHASES.contains(m.timings.getPhase()) || !isTransient(unwrap(e)))
+                        return CompletableFuture.<Module>failedFuture(e);
+
+                    long delay = (long) retryDelay << (attempts - 1);
+                    System.err.printf("Retrying %s in %d seconds after %s%n", m.gav, delay, unwrap(e));
+                    // what the failed attempt found so far is found again
+                    m.extensions.clear();
+                    m.actions.clear();
+                    return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(delay, TimeUnit.SECONDS))
+                            .thenCompose(unused -> scan(m, downloads, resolutions, analyses));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Tells failures that may go away when tried again, like timeouts and server errors,
+     * from those that won't, like a missing artifact.
+     */
+    private static boolean isTransient(Throwable e) {
+        for (Throwable t : ExceptionUtils.getThrowableList(e)) {
+            if (t instanceof FileNotFoundException || t instanceof ArtifactNotFoundException || t instanceof MetadataNotFoundException)
+                return false;
+        }
+        for (Throwable t : ExceptionUtils.getThrowableList(e)) {
+            if (t instanceof SocketException || t instanceof SocketTimeoutException || t instanceof UnknownHostException
+                    || t instanceof ArtifactTransferException || t instanceof MetadataTransferException)
+                return true;
+            // HttpURLConnection reports server errors only in the message
+            if (t instanceof IOException && t.getMessage() != null && t.getMessage().matches(".*HTTP response code: (5\\d\\d|429).*"))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Orders the modules by the size of their {@code -sources.jar}, largest first, so that the longest to process
+     * don't start late and hold up the end of the run. The sizes of those not in the local repository yet are found
+     * with HEAD requests, run on the given pool. Modules whose size can't be found go last.
+     */
+    private static void sortLargestFirst(List<Module> modules, DependencyResolver resolver, ExecutorService pool) {
+        Map<Module,Long> sizes = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (Module m : modules) {
+            futures.add(CompletableFuture.runAsync(() -> sizes.put(m, getSourcesSize(m, resolver)), pool));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        modules.sort(Comparator.comparingLong((Module m) -> sizes.get(m)).reversed());
+    }
+
+    /**
+     * @return
+     *      -1 if unknown.
+     */
+    private static long getSourcesSize(Module m, DependencyResolver resolver) {
+        File local = resolver.findSources(m);
+        if (local != null)
+            return local.length();
+        try {
+            URL url = m.getSourcesUrl(resolver.getRepositoryUrl());
+            if (url.getProtocol().equals("file"))
+                return Files.size(Paths.get(url.toURI()));
+            HttpURLConnection con = (HttpURLConnection) url.openConnection();
+            try {
+                con.setRequestMethod("HEAD");
+                // a hung request would hold up the whole run, which can't start before all the sizes are in
+                con.setConnectTimeout(HEAD_TIMEOUT);
+                con.setReadTimeout(HEAD_TIMEOUT);
+                return con.getResponseCode() == HttpURLConnection.HTTP_OK ? con.getContentLengthLong() : -1;
+            } finally {
+                con.disconnect();
+            }
+        } catch (IOException | URISyntaxException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Creates the thread pool of a stage of {@link #processPlugins(Collection)}, whose queue only has room for
+     * a couple of tasks per thread. Handing a task to it blocks while the queue is full.
+     */
+    private static ExecutorService newStage(int nThreads) {
+        return new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(nThreads * 2),
+                (task, executor) -> {
+                    if (executor.isShutdown())
+                        throw new RejectedExecutionException("Stage has been shut down");
+                    try {
+                        executor.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(e);
+                    }
+                });
+    }
+
+    /**
+     * Creates the thread pool of a stage of {@link #processPlugins(Collection)} that mostly waits on the network,
+     * which starts a virtual thread for each task if {@link #virtualThreads} is set.
+     */
+    private ExecutorService newIoStage(int concurrency) {
+        if (virtualThreads) {
+            try {
+                ExecutorService virtual = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                return new BoundedExecutorService(virtual, concurrency);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Virtual threads are not available in Java " + System.getProperty("java.version") + ", using platform threads");
+                virtualThreads = false;
+            }
+        }
+        return newStage(concurrency);
+    }
+
+    /**
+     * Runs at most a given number of tasks at once on another {@link ExecutorService}, which doesn't limit them itself.
+     * Handing a task to it blocks until one of those running completes.
+     */
+    private static final class BoundedExecutorService extends AbstractExecutorService {
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+
+        BoundedExecutorService(ExecutorService delegate, int concurrency) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(concurrency);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (delegate.isShutdown())
+                throw new RejectedExecutionException("Stage has been shut down");
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+
+    /**
+     * Stage of {@link #processPlugins(Collection)}, which unlike {@link Function} may throw checked exceptions.
+     */
+    private interface Step<T,R> {
+        R apply(T t) throws Exception;
+    }
+
+    private static <T,R> Function<T,R> step(Step<T,R> step) {
+        return t -> {
+            try {
+                return step.apply(t);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        };
+    }
+
+    /**
+     * Reports the failure of a plugin without failing the whole run.
+     */
+    private static CompletableFuture<?> reportFailure(String artifactId, CompletableFuture<?> f) {
+        return f.exceptionally(e -> {
+            System.err.println("Failed to process "+artifactId);
+            unwrap(e).printStackTrace();
+            return null;
+        });
+    }
+
+    /**
+     * Reports the failure of a module without failing the whole run, and records it for {@link RunReport}.
+     */
+    private static CompletableFuture<?> reportFailure(Module m, CompletableFuture<?> f) {
+        return f.exceptionally(e -> {
+            Throwable cause = unwrap(e);
+            m.timings.fail(cause);
+            Phase phase = m.timings.getPhase();
+            System.err.println("Failed to process "+m.gav+(phase != null ? " at "+phase.getName() : ""));
+            cause.printStackTrace();
+            return null;
+        });
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    /**
+     * Writes out {@link #jsonFile} as it goes, one family and one module at a time,
+     * rather than building up the whole document in memory first.
+     */
+    private void generateJson() throws IOException {
+        try (Writer w = Files.newBufferedWriter(jsonFile.toPath(), StandardCharsets.UTF_8)) {
+            JSONBuilder b = new JSONBuilder(w);
+            b.object();
+
+            // lets -incremental tell whether the results can be reused
+            b.key("fingerprint").value(getFingerprint());
+
+            b.key("extensionPoints").object();
+            for (Family f : families.values()) {
+                if (f.definition==null)     continue;   // skip undefined extension points
+
+                b.key(f.getName()).object();
+                JSONObject definition = f.definition.toJSON();
+                for (Object k : definition.keySet()) {
+                    b.key((String) k).value(definition.get(k));
+                }
+                b.key("implementations").array();
+                for (ExtensionSummary impl : f.implementations)
+                    b.value(impl.toJSON());
+                b.endArray();
+                b.endObject();
+            }
+            b.endObject();
+
+            // this object captures information about modules where extensions are defined/found.
+            // failed modules are left out, so that -incremental scans them again rather than reusing nothing.
+            b.key("artifacts").object();
+            for (Module m : modules.values()) {
+                if (m.timings.getOutcome() == Outcome.FAILED)   continue;
+                b.key(m.gav).value(m.toJSON());
+            }
+            b.endObject();
+
+            b.endObject();
         }
     }
 
@@ -338,30 +806,196 @@ public class ExtensionPointListGenerator {
 
     private void discover(Module m) throws IOException, InterruptedException {
         if (asciidocOutputDir !=null || jsonFile!=null) {
-            for (ClassOfInterest e : extractor.extract(m)) {
-                synchronized (families) {
-                    System.out.println("Found "+e);
-
-                    if (e instanceof Extension) {
-                        Extension ee = (Extension) e;
-                        String key = ee.extensionPoint.getQualifiedName().toString();
-
-                        Family f = families.get(key);
-                        if (f==null)    families.put(key,f=new Family());
-
-                        ExtensionSummary es = new ExtensionSummary(f, ee);
-                        m.extensions.add(es);
-                        if (ee.isDefinition()) {
-                            assert f.definition == null;
-                            f.definition = es;
-                        } else {
-                            f.implementations.add(es);
-                        }
-                    }else if(e instanceof Action){
-                        m.actions.add(new ActionSummary((Action)e));
-                    }
-                }
+            if (!reuse(m)) {
+                extractor.extract(m, e -> summarize(m, e));
+                aggregate(m);
+            }
+        }
+    }
+
+    /**
+     * Restores what an earlier run found in the module, if available.
+     *
+     * @return
+     *      false if the module needs to be scanned.
+     */
+    private boolean reuse(Module m) throws IOException {
+        // a record that can't be restored is passed over, so that the module gets scanned rather than lost
+        JSONObject record = journaled.get(m.gav);
+        if (record != null) {
+            try {
+                restore(m, record);
+                System.out.println("Resumed with the result of " + m.gav);
+                m.timings.setOutcome(Outcome.RESUMED);
+                return true;
+            } catch (JSONException | ClassCastException e) {
+                System.err.println("Ignoring the malformed journal record of " + m.gav + ": " + e);
+            }
+        }
+
+        JSONObject previous = previousArtifacts != null ? previousArtifacts.optJSONObject(m.gav) : null;
+        if (previous != null) {
+            try {
+                restorePrevious(m, previous);
+                System.out.println("Reused previous result of " + m.gav);
+                m.timings.setOutcome(Outcome.REUSED);
+                return true;
+            } catch (JSONException | ClassCastException e) {
+                System.err.println("Ignoring the malformed previous result of " + m.gav + ": " + e);
+            }
+        }
+
+        JSONObject cached = cache != null ? cache.load(m) : null;
+        if (cached != null) {
+            try {
+                restore(m, cached);
+                System.out.println("Restored " + m.gav + " from cache");
+                m.timings.setOutcome(Outcome.CACHED);
+                return true;
+            } catch (JSONException | ClassCastException e) {
+                System.err.println("Discarding the malformed cache entry of " + m.gav + ": " + e);
+                cache.discard(m);
             }
         }
+
+        return false;
+    }
+
+    /**
+     * Analysis stage of {@link #processPlugins(Collection)}, which waits for the heap it needs to be available first.
+     */
+    private Module analyze(Module m, SourceAndLibs sal) throws IOException, InterruptedException {
+        long cost;
+        try {
+            long start = m.timings.begin(Phase.WAIT);
+            cost = heapBudget.acquire(extractor.estimateHeap(sal));
+            m.timings.record(Phase.WAIT, start);
+        } catch (InterruptedException | RuntimeException e) {
+            sal.close();
+            throw e;
+        }
+        try {
+            extractor.extract(m, sal, e -> summarize(m, e));
+            return m;
+        } finally {
+            heapBudget.release(cost);
+        }
+    }
+
+    /**
+     * Captures a record found in the module into a summary as soon as it's found,
+     * so that the compiler session isn't kept around for it.
+     */
+    private void summarize(Module m, ClassOfInterest e) {
+        long start = m.timings.beginNested();
+        System.out.println("Found "+e);
+
+        if (e instanceof Extension) {
+            Extension ee = (Extension) e;
+            m.extensions.add(new ExtensionSummary(getFamily(ee.extensionPoint.getQualifiedName().toString()), ee));
+        }else if(e instanceof Action){
+            m.actions.add(new ActionSummary((Action)e));
+        }
+        m.timings.record(Phase.SUMMARIZE, start);
     }
+
+    /**
+     * Files the summaries of a freshly scanned module into {@link #families}, and remembers them in {@link #cache}
+     * and {@link #journal}.
+     */
+    private void aggregate(Module m) {
+        long start = m.timings.begin(Phase.AGGREGATE);
+        addToFamilies(m);
+
+        if (cache != null) {
+            try {
+                cache.store(m);
+            } catch (IOException e) {
+                System.err.println("Failed to cache " + m.gav);
+                e.printStackTrace();
+            }
+        }
+
+        if (journal != null) {
+            try {
+                journal.append(m);
+            } catch (IOException e) {
+                System.err.println("Failed to journal " + m.gav);
+                e.printStackTrace();
+            }
+        }
+        m.timings.record(Phase.AGGREGATE, start);
+        m.timings.setOutcome(Outcome.SCANNED);
+    }
+
+    /**
+     * Files the summaries recorded by {@link ResultCache#store(Module)} back into the module and {@link #families}.
+     * All of them are read before any is filed, so a malformed record leaves neither touched.
+     *
+     * @throws JSONException
+     *      If the record is malformed.
+     */
+    private void restore(Module m, JSONObject record) {
+        List<ExtensionSummary> extensions = new ArrayList<>();
+        for (Object o : record.getJSONArray("extensions")) {
+            JSONObject es = (JSONObject) o;
+            extensions.add(new ExtensionSummary(getFamily(es.getString("extensionPoint")), m, es));
+        }
+        List<ActionSummary> actions = new ArrayList<>();
+        for (Object o : record.getJSONArray("actions")) {
+            actions.add(new ActionSummary(m, (JSONObject) o));
+        }
+        m.extensions.addAll(extensions);
+        m.actions.addAll(actions);
+        addToFamilies(m);
+    }
+
+    /**
+     * Files the extensions and actions listed for the same GAV in {@link #previousArtifacts}
+     * back into the module and {@link #families}.
+     *
+     * @param artifact
+     *      As produced by {@link Module#toJSON()}.
+     */
+    private void restorePrevious(Module m, JSONObject artifact) {
+        JSONArray extensions = new JSONArray();
+        for (String key : List.of("extensionPoints", "extensions")) {
+            for (Object o : artifact.getJSONArray(key)) {
+                extensions.add(ExtensionSummary.toRecord((JSONObject) o));
+            }
+        }
+        JSONObject record = new JSONObject();
+        record.put("extensions", extensions);
+        record.put("actions", artifact.getJSONArray("actions"));
+        restore(m, record);
+    }
+
+    private Family getFamily(String extensionPoint) {
+        return families.computeIfAbsent(extensionPoint, unused -> new Family());
+    }
+
+    /**
+     * Files the extensions of a module into their {@link Family}s.
+     */
+    private void addToFamilies(Module m) {
+        for (ExtensionSummary es : m.extensions) {
+            Family f = es.family;
+            if (es.isDefinition) {
+                assert f.definition == null;
+                f.definition = es;
+            } else {
+                f.implementations.add(es);
+            }
+        }
+    }
+
+    /**
+     * Connect and read timeout of the HEAD requests of {@link #sortLargestFirst}, in milliseconds.
+     */
+    private static final int HEAD_TIMEOUT = 10000;
+
+    /**
+     * Phases whose failures {@link #scan(Module, ExecutorService, ExecutorService, ExecutorService)} may retry.
+     */
+    private static final Set<Phase> FETCH_PHASES = Set.of(Phase.DOWNLOAD, Phase.POM, Phase.RESOLVE);
 }
@@ -2,11 +2,13 @@ package org.jenkinsci.extension_indexer;
 
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
 import com.sun.source.util.JavacTask;
 import com.sun.source.util.TreePath;
 import com.sun.source.util.TreePathScanner;
 import com.sun.source.util.Trees;
 import org.apache.commons.io.FilenameUtils;
+import org.jenkinsci.extension_indexer.Timings.Phase;
 
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.NoType;
@@ -19,15 +21,22 @@ import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Finds the defined extension points in a HPI.
@@ -35,142 +44,365 @@ import java.util.Map;
  * @author Robert Sandell
  * @author Kohsuke Kawaguchi
  */
-public class ExtensionPointsExtractor {
+public class ExtensionPointsExtractor implements Closeable {
+    protected final DependencyResolver resolver;
+
+    /**
+     * If true, have javac attribute and flow-analyze all the method bodies, as a regular compilation would.
+     * Otherwise only the classes and their members are entered, which is all that the scanner needs,
+     * except that anonymous and local classes are then skipped.
+     */
+    private final boolean fullAnalysis;
+
+    /**
+     * Each thread keeps reusing its own file manager from one module to the next, so that the jars that
+     * modules have in common, like jenkins-core and its dependencies, are opened and indexed once
+     * instead of once per module.
+     */
+    private final ThreadLocal<ReusableFileManager> fileManagers = new ThreadLocal<>();
+
+    /**
+     * All the live values of {@link #fileManagers}, so that {@link #close()} can reach them.
+     */
+    private final Set<ReusableFileManager> allFileManagers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Number of jars kept open by all of {@link #allFileManagers} together.
+     */
+    private final AtomicInteger openJars = new AtomicInteger();
+
+    public ExtensionPointsExtractor(DependencyResolver resolver, boolean fullAnalysis) {
+        this.resolver = resolver;
+        this.fullAnalysis = fullAnalysis;
+    }
+
     public List<ClassOfInterest> extract(Module module) throws IOException, InterruptedException {
-        return extract(module,SourceAndLibs.create(module));
+        return extract(module, resolve(module, download(module)));
     }
 
-    public List<ClassOfInterest> extract(final Module module, final SourceAndLibs sal) throws IOException {
-        StandardJavaFileManager fileManager = null;
-        try {
-            JavaCompiler javac1 = ToolProvider.getSystemJavaCompiler();
-            DiagnosticListener<JavaFileObject> errorListener = createErrorListener();
-            fileManager = javac1.getStandardFileManager(errorListener, Locale.getDefault(), Charset.defaultCharset());
+    /**
+     * Like {@link #extract(Module)}, but hands each record over as soon as it's found.
+     */
+    public void extract(Module module, Consumer<? super ClassOfInterest> sink) throws IOException, InterruptedException {
+        extract(module, resolve(module, download(module)), sink);
+    }
 
+    /**
+     * First step of {@link #extract(Module)}, which resolves the {@code -sources.jar} of the module
+     * into the local repository, where it's kept for later runs.
+     */
+    public File download(Module module) throws IOException {
+        return SourceAndLibs.fetchSources(module, resolver);
+    }
 
-            fileManager.setLocation(StandardLocation.CLASS_PATH, sal.getClassPath());
+    /**
+     * Second step of {@link #extract(Module)}, which resolves the dependencies of the module.
+     *
+     * @param download
+     *      What {@link #download(Module)} returned.
+     */
+    public SourceAndLibs resolve(Module module, File download) throws IOException, InterruptedException {
+        return SourceAndLibs.create(module, download, resolver);
+    }
 
-            // annotation processing appears to cause the source files to be reparsed
-            // (even though I couldn't find exactly where it's done), which causes
-            // Tree symbols created by the original JavacTask.parse() call to be thrown away,
-            // which breaks later processing.
-            // So for now, don't perform annotation processing
-            List<String> options = List.of("-proc:none");
+    public List<ClassOfInterest> extract(Module module, SourceAndLibs sal) throws IOException {
+        List<ClassOfInterest> r = new ArrayList<>();
+        extract(module, sal, r::add);
+        return r;
+    }
 
-            Iterable<? extends JavaFileObject> files = fileManager.getJavaFileObjectsFromFiles(sal.getSourceFiles());
-            JavaCompiler.CompilationTask task = javac1.getTask(null, fileManager, errorListener, options, null, files);
-            final JavacTask javac = (JavacTask) task;
+    /**
+     * Scans the module, and hands each record over to the given sink as soon as it's found.
+     *
+     * <p>
+     * Records hold on to the compiler session, which is otherwise let go of when this method returns.
+     * So a sink that turns them into summaries right away, rather than keeping them, avoids holding
+     * the state of the whole compilation any longer than the scan itself.
+     */
+    public void extract(final Module module, final SourceAndLibs sal, Consumer<? super ClassOfInterest> sink) throws IOException {
+        try {
+            long start = module.timings.begin(Phase.PARSE);
+            final JavacTask javac = createTask(sal.getClassPath(), sal.getSourceFiles());
             final Trees trees = Trees.instance(javac);
-            final Elements elements = javac.getElements();
-            final Types types = javac.getTypes();
 
             Iterable<? extends CompilationUnitTree> parsed = javac.parse();
-            javac.analyze();
+            module.timings.record(Phase.PARSE, start);
+            if (fullAnalysis) {
+                start = module.timings.begin(Phase.ANALYZE);
+                javac.analyze();
+                module.timings.record(Phase.ANALYZE, start);
+            }
 
-            final List<ClassOfInterest> r = new ArrayList<>();
+            final Collector collector = new Collector(module, javac, sal, sink);
 
             // discover all compiled types
             TreePathScanner<?,?> classScanner = new TreePathScanner<Void,Void>() {
-                final TypeElement extensionPoint = elements.getTypeElement("hudson.ExtensionPoint");
-                final TypeElement action = elements.getTypeElement("hudson.model.Action");
-
                 @Override
                 public Void visitClass(ClassTree ct, Void ignored) {
                     TreePath path = getCurrentPath();
+                    if (!fullAnalysis && !isTopLevelOrMember(path)) {
+                        // local and anonymous classes only get a symbol once their enclosing class is attributed,
+                        // which Trees.getElement() would do on demand
+                        return null;
+                    }
                     TypeElement e = (TypeElement) trees.getElement(path);
                     if (e != null) {
-                        checkIfExtension(path, e, e);
-                        checkIfAction(path, e);
+                        collector.check(e, path);
                     }
                     return super.visitClass(ct, ignored);
                 }
 
-                /**
-                 * If the class is an action, create a record for it.
-                 */
-                private void checkIfAction(TreePath path, TypeElement e) {
-                    if (types.isSubtype(e.asType(), action.asType())) {
-                        r.add(new Action(module, javac, trees, e, path, collectViews(e)));
-                    }
-                }
-
-                /**
-                 * Recursively ascend the type hierarchy toward {@link Object} and find all extension points
-                 * {@code root} implement.
-                 */
-                private void checkIfExtension(TreePath pathToRoot, TypeElement root, TypeElement e) {
-                    if (e==null)    return; // if the compilation fails, this can happen
-
-                    for (TypeMirror i : e.getInterfaces()) {
-                        if (types.asElement(i).equals(extensionPoint)){
-                            r.add(new Extension(module, javac, trees, root, pathToRoot, e, collectViews(e)));
-                        }
-                        checkIfExtension(pathToRoot,root,(TypeElement)types.asElement(i));
-                    }
-                    TypeMirror s = e.getSuperclass();
-                    if (!(s instanceof NoType))
-                        checkIfExtension(pathToRoot,root,(TypeElement)types.asElement(s));
-                }
-
-                /**
-                 * Collect views recursively going up the ancestors.
-                 */
-                private Map<String, String> collectViews(TypeElement clazz) {
-                    Map<String, String> views;
-
-                    TypeMirror s = clazz.getSuperclass();
-                    if (!(s instanceof NoType))
-                        views = collectViews((TypeElement)types.asElement(s));
-                    else
-                        views = new HashMap<>();
-
-                    for (String v : sal.getViewFiles(clazz.getQualifiedName().toString())) {
-                        // views defined in subtypes override those defined in the base type
-                        views.put(FilenameUtils.getBaseName(v),v);
-                    }
-
-                    return views;
+                private boolean isTopLevelOrMember(TreePath path) {
+                    Tree parent = path.getParentPath().getLeaf();
+                    return parent instanceof CompilationUnitTree || parent instanceof ClassTree;
                 }
             };
 
+            start = module.timings.begin(Phase.SCAN);
             for( CompilationUnitTree u : parsed )
                 classScanner.scan(u,null);
-
-            return r;
+            module.timings.record(Phase.SCAN, start);
         } catch (AssertionError e) {
-            // javac has thrown this exception for some input
-            System.err.println("Failed to analyze "+module.gav);
-            e.printStackTrace();
-            return Collections.emptyList();
+            // javac has thrown this exception for some input.
+            // report it rather than returning an empty result, which would otherwise end up in ResultCache
+            throw new IOException("Failed to analyze "+module.gav, e);
         } finally {
-            if (fileManager!=null)
-                fileManager.close();
             sal.close();
         }
     }
 
-    private void populateViewMap(List<File> files, Map<String,String> views){
-        for(File f: files) {
-            String fqName = f.getAbsolutePath();
-            int loc = fqName.indexOf("src");
-            if (loc > 0) {
-                String path = fqName.substring(loc + 4);
-                String[] a = path.split("/");
-                String name = a[a.length - 1];
-                int i = name.lastIndexOf(".");
-                if(i > 0){
-                    name = name.substring(0,i);
-                }
+    /**
+     * Roughly estimates how much heap {@link #extract(Module, SourceAndLibs)} takes up for the module.
+     * javac holds on to trees and symbols for all the sources, but only loads the classes it needs from the class path.
+     */
+    public long estimateHeap(SourceAndLibs sal) {
+        return sal.getSourcesSize("java") * (fullAnalysis ? 40 : 20) + sal.getClassPathSize() / 4;
+    }
+
+    /**
+     * Creates a compiler session over the given source files, which are yet to be parsed.
+     */
+    protected JavacTask createTask(List<File> classPath, Iterable<? extends JavaFileObject> files) throws IOException {
+        JavaCompiler javac1 = ToolProvider.getSystemJavaCompiler();
+        DiagnosticListener<JavaFileObject> errorListener = createErrorListener();
+        StandardJavaFileManager fileManager = getFileManager(javac1, errorListener, classPath);
+
+        fileManager.setLocation(StandardLocation.CLASS_PATH, classPath);
+
+        // annotation processing appears to cause the source files to be reparsed
+        // (even though I couldn't find exactly where it's done), which causes
+        // Tree symbols created by the original JavacTask.parse() call to be thrown away,
+        // which breaks later processing.
+        // So for now, don't perform annotation processing
+        List<String> options = List.of("-proc:none");
+
+        return (JavacTask) javac1.getTask(null, fileManager, errorListener, options, null, files);
+    }
+
+    /**
+     * Checks classes of a module against the type hierarchy, and collects a record for each extension point
+     * they implement and for each action they are.
+     */
+    protected class Collector {
+        final Module module;
+        final JavacTask javac;
+        final Trees trees;
+        final Types types;
+        final SourceAndLibs sal;
+        final TypeElement extensionPoint;
+        final TypeElement action;
+
+        /**
+         * Receives the records as they are found.
+         */
+        final Consumer<? super ClassOfInterest> sink;
+
+        /**
+         * Memoized {@link #getExtensionPoints(TypeElement)}.
+         * Elements belong to the compiler session, so this can't be shared across modules.
+         */
+        private final Map<TypeElement,Set<TypeElement>> extensionPointsOf = new HashMap<>();
+
+        /**
+         * Memoized {@link #collectViews(TypeElement)}.
+         */
+        private final Map<TypeElement,Map<String,String>> viewsOf = new HashMap<>();
+
+        /**
+         * Must be created after the source files, if any, are parsed.
+         */
+        Collector(Module module, JavacTask javac, SourceAndLibs sal, Consumer<? super ClassOfInterest> sink) {
+            this.module = module;
+            this.sink = sink;
+            this.javac = javac;
+            this.trees = Trees.instance(javac);
+            this.types = javac.getTypes();
+            this.sal = sal;
 
-                views.putIfAbsent(name, path);
-            } else {
-                //We can't get here as jelly files are always stored inside src root
+            // looking up any type by name enters all the parsed compilation units, if analyze() hasn't.
+            // Supertypes and members then get completed lazily as they are asked for.
+            Elements elements = javac.getElements();
+            this.extensionPoint = elements.getTypeElement("hudson.ExtensionPoint");
+            this.action = elements.getTypeElement("hudson.model.Action");
+        }
+
+        /**
+         * @param path
+         *      {@link TreePath} to the class, or null if it was read from a class file.
+         */
+        void check(TypeElement e, TreePath path) {
+            checkIfExtension(path, e);
+            checkIfAction(path, e);
+        }
+
+        /**
+         * If the class is an action, create a record for it.
+         */
+        private void checkIfAction(TreePath path, TypeElement e) {
+            if (types.isSubtype(e.asType(), action.asType())) {
+                sink.accept(new Action(module, javac, trees, e, path, collectViews(e)));
+            }
+        }
+
+        /**
+         * If the class implements extension points, create a record for each of them.
+         */
+        private void checkIfExtension(TreePath path, TypeElement e) {
+            for (TypeElement ep : getExtensionPoints(e)) {
+                sink.accept(new Extension(module, javac, trees, e, path, ep, collectViews(ep)));
             }
         }
+
+        /**
+         * Recursively ascend the type hierarchy toward {@link Object} and find all extension points
+         * {@code e} implement, in the order they are met.
+         *
+         * <p>
+         * Results are memoized, since classes of a module mostly share the same few ancestors from jenkins-core.
+         */
+        private Set<TypeElement> getExtensionPoints(TypeElement e) {
+            Set<TypeElement> r = extensionPointsOf.get(e);
+            if (r != null)
+                return r;
+
+            r = new LinkedHashSet<>();
+            for (TypeMirror i : e.getInterfaces()) {
+                TypeElement t = (TypeElement) types.asElement(i);
+                if (t == null)  continue;   // if the compilation fails, this can happen
+                if (t.equals(extensionPoint))
+                    r.add(e);
+                r.addAll(getExtensionPoints(t));
+            }
+            TypeMirror s = e.getSuperclass();
+            if (!(s instanceof NoType)) {
+                TypeElement t = (TypeElement) types.asElement(s);
+                if (t != null)
+                    r.addAll(getExtensionPoints(t));
+            }
+
+            extensionPointsOf.put(e, r);
+            return r;
+        }
+
+        /**
+         * Collect views recursively going up the ancestors.
+         *
+         * <p>
+         * Results are memoized and shared between the records, so they are unmodifiable.
+         */
+        Map<String, String> collectViews(TypeElement clazz) {
+            Map<String, String> views = viewsOf.get(clazz);
+            if (views != null)
+                return views;
+
+            TypeMirror s = clazz.getSuperclass();
+            if (!(s instanceof NoType))
+                views = collectViews((TypeElement)types.asElement(s));
+            else
+                views = Collections.emptyMap();
+
+            List<String> own = sal.getViewFiles(clazz.getQualifiedName().toString());
+            if (!own.isEmpty()) {
+                views = new HashMap<>(views);
+                for (String v : own) {
+                    // views defined in subtypes override those defined in the base type
+                    views.put(Names.intern(FilenameUtils.getBaseName(v)),Names.intern(v));
+                }
+                views = Collections.unmodifiableMap(views);
+            }
+
+            viewsOf.put(clazz, views);
+            return views;
+        }
+    }
+
+    /**
+     * Gets the file manager of the current thread.
+     * Once the jars kept open by all the threads together go over {@link #MAX_OPEN_JARS}, the thread that
+     * gets there starts over with a fresh one, unless all the jars of its own are on the class path at hand.
+     */
+    private StandardJavaFileManager getFileManager(JavaCompiler javac, DiagnosticListener<JavaFileObject> errorListener, List<File> classPath) throws IOException {
+        ReusableFileManager fm = fileManagers.get();
+        if (fm != null) {
+            fm.open(classPath);
+            if (openJars.get() <= MAX_OPEN_JARS || fm.jars.size() <= new HashSet<>(classPath).size())
+                return fm.fileManager;
+            fm.close();
+        }
+
+        fm = new ReusableFileManager(javac.getStandardFileManager(errorListener, Locale.getDefault(), Charset.defaultCharset()));
+        fm.open(classPath);
+        fileManagers.set(fm);
+        allFileManagers.add(fm);
+        return fm.fileManager;
+    }
+
+    /**
+     * Closes the file managers of all the threads.
+     */
+    @Override
+    public void close() throws IOException {
+        for (ReusableFileManager fm : allFileManagers) {
+            fm.close();
+        }
+    }
+
+    /**
+     * {@link StandardJavaFileManager} confined to one thread, and the jars it has kept open so far.
+     */
+    private final class ReusableFileManager implements Closeable {
+        final StandardJavaFileManager fileManager;
+        final Set<File> jars = new HashSet<>();
+
+        ReusableFileManager(StandardJavaFileManager fileManager) {
+            this.fileManager = fileManager;
+        }
+
+        /**
+         * Counts in the jars of a class path that this is about to open.
+         */
+        void open(List<File> classPath) {
+            int before = jars.size();
+            jars.addAll(classPath);
+            openJars.addAndGet(jars.size() - before);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (allFileManagers.remove(this))
+                openJars.addAndGet(-jars.size());
+            fileManager.close();
+        }
     }
 
     protected DiagnosticListener<JavaFileObject> createErrorListener() {
         //TODO report
         return System.out::println;
     }
+
+    /**
+     * Number of jars that the file managers of all the threads may keep open together,
+     * as each of them holds on to a file descriptor and an index of its entries.
+     */
+    private static final int MAX_OPEN_JARS = 2000;
 }
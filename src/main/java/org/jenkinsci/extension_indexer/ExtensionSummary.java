@@ -1,6 +1,8 @@
 package org.jenkinsci.extension_indexer;
 
 import net.sf.json.JSONObject;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.jenkinsci.extension_indexer.ExtensionPointListGenerator.Family;
 
 import javax.lang.model.element.Element;
@@ -9,7 +11,6 @@ import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Captures key details of {@link Extension} but without keeping much of the work in memory.
@@ -17,24 +18,9 @@ import java.util.Map;
  * @author Kohsuke Kawaguchi
  * @see Extension
  */
-public class ExtensionSummary {
-    /**
-     * Back reference to the module where this implementation was found.
-     */
-    public final Module module;
-
+public class ExtensionSummary extends ClassSummary {
     public final String extensionPoint;
 
-    public final String implementation;
-
-    public final String documentation;
-
-    public final JSONObject json;
-
-    public final boolean hasView;
-
-    public final Map<String,String> views;
-
     public final String packageName;
 
     public final String className;
@@ -53,18 +39,68 @@ public class ExtensionSummary {
     public final Family family;
 
     public ExtensionSummary(Family f, Extension e) {
+        super(e);
         this.family = f;
         this.isDefinition = e.isDefinition();
-        this.module = e.module;
-        this.extensionPoint = e.extensionPoint.getQualifiedName().toString();
-        this.implementation = e.implementation!=null ? e.implementation.getQualifiedName().toString() : null;
-        this.documentation = e.getDocumentation();
-        this.hasView = e.hasView();
-        this.packageName = findPackageName(e.implementation);
+        this.extensionPoint = Names.intern(e.extensionPoint.getQualifiedName().toString());
+        this.packageName = Names.intern(findPackageName(e.implementation));
         this.className = findClassName(e.implementation);
         this.topLevelClassName = findTopLevelClassName(e.implementation);
-        this.views = e.views;
-        this.json = e.toJSON();
+    }
+
+    /**
+     * Restores a summary previously captured by {@link #toRecord()}.
+     */
+    ExtensionSummary(Family f, Module module, JSONObject record) {
+        super(module, record.getJSONObject("json"));
+        this.family = f;
+        this.extensionPoint = Names.intern(record.getString("extensionPoint"));
+        this.isDefinition = !record.getJSONObject("json").has("extensionPoint");
+        this.packageName = Names.intern(record.getString("packageName"));
+        this.className = record.optString("className", null);
+        this.topLevelClassName = record.getString("topLevelClassName");
+    }
+
+    @Override
+    public JSONObject toJSON() {
+        JSONObject i = super.toJSON();
+        if (!isDefinition)
+            i.put("extensionPoint",extensionPoint);
+        return i;
+    }
+
+    /**
+     * Captures this summary in a form that {@link ResultCache} can persist,
+     * including the names that {@link #toJSON()} alone doesn't carry.
+     */
+    JSONObject toRecord() {
+        JSONObject o = new JSONObject();
+        o.put("json", toJSON());
+        o.put("extensionPoint", extensionPoint);
+        o.put("packageName", packageName);
+        o.put("className", className);
+        o.put("topLevelClassName", topLevelClassName);
+        return o;
+    }
+
+    /**
+     * Turns the {@link #toJSON()} form of a summary, as found in the {@code -json} output, into a record that
+     * {@link #ExtensionSummary(Family, Module, JSONObject)} accepts. Names that only {@link #toRecord()} captures
+     * are inferred from the source file.
+     */
+    static JSONObject toRecord(JSONObject json) {
+        String implementation = json.getString("className");
+        String sourceFile = json.getString("sourceFile");
+        String packageName = FilenameUtils.getPathNoEndSeparator(sourceFile).replace('/', '.');
+        String className = packageName.isEmpty() ? implementation : StringUtils.removeStart(implementation, packageName + ".");
+
+        JSONObject o = new JSONObject();
+        o.put("json", json);
+        o.put("extensionPoint", json.optString("extensionPoint", implementation));
+        o.put("packageName", packageName);
+        o.put("className", className.isEmpty() ? null : className);
+        o.put("topLevelClassName", FilenameUtils.getBaseName(sourceFile));
+        return o;
     }
 
     private String findPackageName(TypeElement element) {
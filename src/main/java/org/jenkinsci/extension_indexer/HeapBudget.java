@@ -0,0 +1,59 @@
+package org.jenkinsci.extension_indexer;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Admits work against a budget of heap memory, so that running many compilations at once doesn't exhaust the heap.
+ *
+ * <p>
+ * The largest waiting request is admitted first, and smaller ones wait behind it, so that big modules
+ * aren't left to run at the very end, and alone.
+ *
+ * @see ExtensionPointsExtractor#estimateHeap(SourceAndLibs)
+ */
+class HeapBudget {
+    private final long capacity;
+    private long available;
+
+    /**
+     * Costs of the threads waiting in {@link #acquire(long)}, largest first.
+     */
+    private final PriorityQueue<Long> waiting = new PriorityQueue<>(Comparator.reverseOrder());
+
+    HeapBudget(long capacity) {
+        this.capacity = capacity;
+        this.available = capacity;
+    }
+
+    long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Blocks until the given number of bytes fits in the budget.
+     * Requests beyond the whole budget are capped, so that they run with nothing else rather than never.
+     *
+     * @return
+     *      The cost to pass to {@link #release(long)}.
+     */
+    synchronized long acquire(long cost) throws InterruptedException {
+        cost = Math.min(cost, capacity);
+        waiting.add(cost);
+        try {
+            while (waiting.peek() != cost || cost > available) {
+                wait();
+            }
+        } finally {
+            waiting.remove(cost);
+            notifyAll();
+        }
+        available -= cost;
+        return cost;
+    }
+
+    synchronized void release(long cost) {
+        available += cost;
+        notifyAll();
+    }
+}
@@ -0,0 +1,113 @@
+package org.jenkinsci.extension_indexer;
+
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Log of the modules scanned so far in a run, so that a run that dies midway can be resumed
+ * without scanning them again.
+ *
+ * <p>
+ * Each line holds what was found in a module, in the form {@link ResultCache} stores it, and is written out
+ * as soon as the module is done. The first line holds the fingerprint of the indexer, so that a journal left
+ * behind by another version or other settings isn't resumed from.
+ */
+public class Journal implements Closeable {
+    private final File file;
+    private final Writer writer;
+
+    /**
+     * Starts a journal over, which keeps only the given records of an earlier one.
+     *
+     * @param carried
+     *      Records to keep, as returned by {@link #load(File, String)} when resuming.
+     */
+    public Journal(File file, String fingerprint, Collection<JSONObject> carried) throws IOException {
+        this.file = file;
+
+        // starting over must not lose the carried records
+        AtomicFiles.write(file.toPath(), tmp -> {
+            try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                JSONObject header = new JSONObject();
+                header.put("fingerprint", fingerprint);
+                w.write(header + "\n");
+                for (JSONObject record : carried) {
+                    w.write(record + "\n");
+                }
+            }
+        });
+
+        writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Records the extensions and actions found in the given module.
+     * The record is flushed right away, so that it survives the JVM dying.
+     */
+    public synchronized void append(Module m) throws IOException {
+        writer.write(ResultCache.toRecord(m) + "\n");
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Closes the journal and deletes it, once the run it was for has completed.
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    /**
+     * Reads the records of a journal left behind by an earlier run.
+     *
+     * @return
+     *      Records keyed by GAV. Empty if there's no such journal, or if it was written with another fingerprint.
+     */
+    public static Map<String,JSONObject> load(File file, String fingerprint) throws IOException {
+        Map<String,JSONObject> records = new LinkedHashMap<>();
+        if (!file.exists())
+            return records;
+
+        try (BufferedReader r = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line = r.readLine();
+            if (line == null || !fingerprint.equals(parse(line).optString("fingerprint"))) {
+                System.err.println("Not resuming from " + file + ", which was written by another version or with other settings");
+                return records;
+            }
+            while ((line = r.readLine()) != null) {
+                JSONObject record = parse(line);
+                if (record.has("gav"))
+                    records.put(record.getString("gav"), record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Parses a line, which comes out empty if the line was cut short by a crash.
+     */
+    private static JSONObject parse(String line) {
+        try {
+            return JSONObject.fromObject(line);
+        } catch (JSONException e) {
+            return new JSONObject();
+        }
+    }
+}
@@ -32,6 +32,10 @@ abstract class Module implements Comparable<Module> {
      * Actions that are found inside this module.
      */
     final List<ActionSummary> actions = new ArrayList<>();
+    /**
+     * How long it took to process this module.
+     */
+    final Timings timings = new Timings();
 
     private static final String JENKINS_CORE_URL_NAME = "jenkins-core";
 
@@ -67,12 +71,12 @@ abstract class Module implements Comparable<Module> {
 
     abstract String getUrlName();
 
-    public URL getSourcesUrl() throws MalformedURLException {
-        return new URL("https://repo.jenkins-ci.org/releases/" + group.replaceAll("\\.", "/") + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + "-sources.jar");
-    }
-
-    public URL getResolvedPomUrl() throws MalformedURLException {
-        return new URL("https://repo.jenkins-ci.org/releases/" + group.replaceAll("\\.", "/") + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + ".pom");
+    /**
+     * @param repositoryUrl
+     *      Maven repository, like {@link DependencyResolver#getRepositoryUrl()}, ending with a slash.
+     */
+    public URL getSourcesUrl(String repositoryUrl) throws MalformedURLException {
+        return new URL(repositoryUrl + group.replaceAll("\\.", "/") + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + "-sources.jar");
     }
 
     JSONObject toJSON() {
@@ -88,7 +92,7 @@ abstract class Module implements Comparable<Module> {
         JSONArray extensionPoints = new JSONArray();
         int viewCount=0;
         for (ExtensionSummary es : this.extensions) {
-            (es.isDefinition ? extensionPoints : extensions).add(es.json);
+            (es.isDefinition ? extensionPoints : extensions).add(es.toJSON());
             defs.add(es.family.definition);
 
             if(es.hasView){
@@ -97,8 +101,7 @@ abstract class Module implements Comparable<Module> {
         }
 
         for(ActionSummary action:this.actions){
-            JSONObject jsonObject = action.json;
-            actions.add(jsonObject);
+            actions.add(action.toJSON());
             if(action.hasView){
                 viewCount++;
             }
@@ -116,7 +119,7 @@ abstract class Module implements Comparable<Module> {
         JSONArray uses = new JSONArray();
         for (ExtensionSummary es : defs) {
             if (es==null)   continue;
-            uses.add(es.json);
+            uses.add(es.toJSON());
         }
         o.put("uses", uses);    // extension points that this module consumes
 
@@ -0,0 +1,25 @@
+package org.jenkinsci.extension_indexer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pool of the names that recur across the summaries of all the modules, like those of extension points,
+ * packages and views, so that each is kept in memory once however many modules mention it.
+ * Names that are unique to a class, like its own, aren't worth pooling, as they would only pile up in here.
+ */
+final class Names {
+    private static final ConcurrentMap<String,String> POOL = new ConcurrentHashMap<>();
+
+    private Names() {}
+
+    /**
+     * Gets the pooled instance equal to the given string, which becomes that instance if there's none yet.
+     */
+    static String intern(String s) {
+        if (s == null)
+            return null;
+        String existing = POOL.putIfAbsent(s, s);
+        return existing != null ? existing : s;
+    }
+}
@@ -0,0 +1,160 @@
+package org.jenkinsci.extension_indexer;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * On-disk cache of what was found in each {@link Module}, keyed by its GAV.
+ *
+ * <p>
+ * Once a module has been scanned by a given build of the indexer, later runs can restore its {@link ExtensionSummary}s and {@link ActionSummary}s from here instead of
+ * downloading and compiling it again. Entries are stored under a fingerprint of the indexer, so that results
+ * recorded by an incompatible version are simply never looked up.
+ */
+public class ResultCache {
+    /**
+     * Bump this whenever the form of the stored records changes.
+     * Changes to what is extracted are told apart by {@link #getBuildChecksum()}.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    private final File dir;
+
+    public ResultCache(File rootDir, String fingerprint) {
+        this.dir = new File(rootDir, fingerprint);
+    }
+
+    /**
+     * Loads the result previously stored for the given module.
+     * An entry that can't be parsed, like one cut short by a full disk, is discarded.
+     *
+     * @return
+     *      null if this module hasn't been cached yet.
+     */
+    public JSONObject load(Module m) throws IOException {
+        File f = getFile(m);
+        if (!f.exists())
+            return null;
+        JSONObject o;
+        try {
+            o = JSONObject.fromObject(Files.readString(f.toPath(), StandardCharsets.UTF_8));
+            o.getJSONArray("extensions");
+            o.getJSONArray("actions");
+        } catch (JSONException e) {
+            System.err.println("Discarding the malformed cache entry " + f + ": " + e);
+            discard(m);
+            return null;
+        }
+        if (!m.gav.equals(o.optString("gav")))
+            return null;    // shouldn't happen unless the file was tampered with
+        return o;
+    }
+
+    /**
+     * Deletes the entry of the given module, so that it's stored afresh once the module is scanned again.
+     */
+    public void discard(Module m) throws IOException {
+        Files.deleteIfExists(getFile(m).toPath());
+    }
+
+    /**
+     * Records the extensions and actions currently found in the given module.
+     */
+    public void store(Module m) throws IOException {
+        String o = toRecord(m).toString();
+        AtomicFiles.write(getFile(m).toPath(), tmp -> Files.writeString(tmp, o, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Captures the extensions and actions currently found in the given module, in the form they are stored in.
+     */
+    static JSONObject toRecord(Module m) {
+        JSONObject o = new JSONObject();
+        o.put("gav", m.gav);
+
+        JSONArray extensions = new JSONArray();
+        for (ExtensionSummary es : m.extensions)
+            extensions.add(es.toRecord());
+        o.put("extensions", extensions);
+
+        JSONArray actions = new JSONArray();
+        for (ActionSummary as : m.actions)
+            actions.add(as.toJSON());
+        o.put("actions", actions);
+        return o;
+    }
+
+    /**
+     * Checksums the classes and resources of the indexer itself, from the jar or the directory they were loaded from,
+     * so that the results of any other build of it are told apart.
+     * The names and contents of the files are checksummed rather than the jar, so that rebuilding the same code
+     * yields the same checksum.
+     */
+    static String getBuildChecksum() throws IOException {
+        MessageDigest digest;
+        Path location;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+            location = Paths.get(ResultCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (NoSuchAlgorithmException | URISyntaxException e) {
+            throw new IOException("Failed to checksum the indexer", e);
+        }
+
+        if (Files.isDirectory(location)) {
+            List<Path> files;
+            try (Stream<Path> s = Files.walk(location.resolve(PACKAGE))) {
+                files = s.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path f : files) {
+                digest.update(location.relativize(f).toString().replace(File.separatorChar, '/').getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(f));
+            }
+        } else {
+            try (ZipFile jar = new ZipFile(location.toFile())) {
+                List<String> names = new ArrayList<>();
+                for (ZipEntry e : Collections.list(jar.entries())) {
+                    if (!e.isDirectory() && e.getName().startsWith(PACKAGE))
+                        names.add(e.getName());
+                }
+                Collections.sort(names);
+                for (String n : names) {
+                    digest.update(n.getBytes(StandardCharsets.UTF_8));
+                    try (InputStream is = jar.getInputStream(jar.getEntry(n))) {
+                        digest.update(is.readAllBytes());
+                    }
+                }
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.substring(0, 12);
+    }
+
+    private File getFile(Module m) {
+        return new File(dir, m.group + "/" + m.artifactId + "/" + m.version + ".json");
+    }
+
+    private static final String PACKAGE = "org/jenkinsci/extension_indexer/";
+}
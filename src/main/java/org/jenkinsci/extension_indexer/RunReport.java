@@ -0,0 +1,193 @@
+package org.jenkinsci.extension_indexer;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jenkinsci.extension_indexer.Timings.Outcome;
+import org.jenkinsci.extension_indexer.Timings.Phase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Machine-readable report of where the time of a run went, from the {@link Timings} of each module.
+ *
+ * <p>
+ * {@code run-report.json} has the histogram and percentiles of each phase over the modules that went through it,
+ * the throughput of the run, and which modules failed, where and why. {@code run-report.csv} has one row per module,
+ * to dig into the slow ones. Times are in milliseconds.
+ */
+class RunReport {
+    /**
+     * Upper bounds of the histogram buckets, in milliseconds, in 1-2-5 steps.
+     */
+    private static final long[] BUCKETS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 50000, 100000, 200000, 500000
+    };
+
+    private final List<Module> modules;
+    private final long elapsedNanos;
+
+    /**
+     * @param elapsedNanos
+     *      Wall-clock time of the whole run.
+     */
+    RunReport(Collection<Module> modules, long elapsedNanos) {
+        this.modules = new ArrayList<>(modules);
+        this.modules.sort(null);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Writes out {@code run-report.json} and {@code run-report.csv} into the given directory.
+     */
+    void write(File dir) throws IOException {
+        Files.createDirectories(dir.toPath());
+        Files.writeString(new File(dir, "run-report.json").toPath(), toJSON().toString(2), StandardCharsets.UTF_8);
+        try (PrintWriter w = new PrintWriter(new File(dir, "run-report.csv"), StandardCharsets.UTF_8)) {
+            writeCsv(w);
+        }
+    }
+
+    JSONObject toJSON() {
+        JSONObject o = new JSONObject();
+        o.put("elapsed", millis(elapsedNanos));
+
+        Map<Outcome,Integer> outcomes = new EnumMap<>(Outcome.class);
+        JSONArray failures = new JSONArray();
+        for (Module m : modules) {
+            Outcome outcome = m.timings.getOutcome();
+            outcomes.merge(outcome, 1, Integer::sum);
+            if (outcome == Outcome.FAILED)
+                failures.add(toFailureJSON(m));
+        }
+        JSONObject counts = new JSONObject();
+        for (Outcome outcome : Outcome.values()) {
+            counts.put(outcome.getName(), outcomes.getOrDefault(outcome, 0));
+        }
+        o.put("modules", counts);
+
+        int scanned = outcomes.getOrDefault(Outcome.SCANNED, 0);
+        double minutes = elapsedNanos / 60e9;
+        o.put("scannedPerMinute", minutes > 0 ? scanned / minutes : 0);
+
+        JSONObject phases = new JSONObject();
+        for (Phase phase : Phase.values()) {
+            phases.put(phase.getName(), toJSON(phase));
+        }
+        o.put("phases", phases);
+        o.put("failures", failures);
+        return o;
+    }
+
+    private static JSONObject toFailureJSON(Module m) {
+        JSONObject o = new JSONObject();
+        o.put("gav", m.gav);
+        Phase phase = m.timings.getPhase();
+        o.put("phase", phase != null ? phase.getName() : null);
+        o.put("attempts", m.timings.getAttempts());
+        Throwable cause = m.timings.getFailure();
+        if (cause != null) {
+            o.put("cause", cause.toString());
+            Throwable root = ExceptionUtils.getRootCause(cause);
+            if (root != cause)
+                o.put("rootCause", root.toString());
+        }
+        return o;
+    }
+
+    /**
+     * Statistics of a phase over the modules that went through it.
+     */
+    private JSONObject toJSON(Phase phase) {
+        long[] nanos = modules.stream().filter(m -> m.timings.has(phase)).mapToLong(m -> m.timings.getNanos(phase)).sorted().toArray();
+
+        JSONObject o = new JSONObject();
+        o.put("count", nanos.length);
+        long total = Arrays.stream(nanos).sum();
+        o.put("total", millis(total));
+        if (nanos.length > 0) {
+            o.put("mean", millis(total / nanos.length));
+            o.put("p50", millis(percentile(nanos, 50)));
+            o.put("p90", millis(percentile(nanos, 90)));
+            o.put("p99", millis(percentile(nanos, 99)));
+            o.put("max", millis(nanos[nanos.length - 1]));
+        }
+
+        JSONArray histogram = new JSONArray();
+        int i = 0;
+        for (long bound : BUCKETS) {
+            int count = 0;
+            while (i < nanos.length && nanos[i] <= bound * 1000000) {
+                count++;
+                i++;
+            }
+            histogram.add(bucket(bound, count));
+        }
+        histogram.add(bucket("+Inf", nanos.length - i));
+        o.put("histogram", histogram);
+        return o;
+    }
+
+    private static JSONObject bucket(Object bound, int count) {
+        JSONObject b = new JSONObject();
+        b.put("le", bound);
+        b.put("count", count);
+        return b;
+    }
+
+    /**
+     * Nearest-rank percentile of the sorted values.
+     */
+    private static long percentile(long[] sorted, int p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private void writeCsv(PrintWriter w) {
+        w.print("gav,outcome,attempts,extensions,actions");
+        for (Phase phase : Phase.values()) {
+            w.print("," + phase.getName());
+        }
+        w.println(",failedPhase,cause");
+
+        for (Module m : modules) {
+            Outcome outcome = m.timings.getOutcome();
+            w.print(m.gav + "," + outcome.getName() + "," + m.timings.getAttempts() + "," + m.extensions.size() + "," + m.actions.size());
+            for (Phase phase : Phase.values()) {
+                w.print(",");
+                if (m.timings.has(phase))
+                    w.print(String.format(Locale.ROOT, "%.3f", millis(m.timings.getNanos(phase))));
+            }
+            if (outcome == Outcome.FAILED) {
+                Phase phase = m.timings.getPhase();
+                Throwable cause = m.timings.getFailure();
+                w.print("," + (phase != null ? phase.getName() : "") + "," + (cause != null ? quote(cause.toString()) : ""));
+            } else {
+                w.print(",,");
+            }
+            w.println();
+        }
+    }
+
+    /**
+     * Quotes a CSV field that may contain commas, quotes or line breaks.
+     */
+    private static String quote(String s) {
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -1,59 +1,107 @@
 package org.jenkinsci.extension_indexer;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 
-import java.io.ByteArrayOutputStream;
+import javax.tools.JavaFileObject;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
- * Extracted source files and dependency jar files for a Maven project.
+ * Source files and dependency jar files for a Maven project.
+ *
+ * <p>
+ * Source files and views are read straight out of the {@code -sources.jar} without extracting it.
+ * Neither it nor the dependency jars are copied anywhere. They are used in place from the local Maven repository
+ * that {@link DependencyResolver} resolves them into.
  *
  * @author Kohsuke Kawaguchi
  */
 public class SourceAndLibs implements Closeable {
-    public final File srcDir;
-    public final File libDir;
+    /**
+     * The {@code -sources.jar} of the module, or its binary jar when scanning class files.
+     */
+    private final ZipFile sources;
+    private final List<File> classPath;
 
     /**
-     * Lazily built list of all views in classpath.
+     * Lazily built index of the views in {@link #sources}, from the directory to the file names in it.
      */
-    private List<String> allViews;
+    private Map<String,List<String>> sourceViews;
 
-    public SourceAndLibs(File srcDir, File libDir) {
-        this.srcDir = srcDir;
-        this.libDir = libDir;
+    /**
+     * Lazily built index of the views in the class path, from the directory to the qualified names of the views in it.
+     */
+    private Map<String,List<String>> libViews;
+
+    public SourceAndLibs(ZipFile sources, List<File> classPath) {
+        this.sources = sources;
+        this.classPath = classPath;
     }
 
     /**
      * Frees any resources allocated for this.
-     * In particular, delete the files if they are temporarily extracted.
      */
     @Override
     public void close() throws IOException {
+        sources.close();
+    }
+
+    /**
+     * Gets the archive that stands for the sources, which is the binary jar when scanning class files.
+     */
+    ZipFile getSources() {
+        return sources;
     }
 
     public List<File> getClassPath() {
-        return FileUtilsExt.getFileIterator(libDir, "jar");
+        return classPath;
     }
 
-    public List<File> getSourceFiles() {
-        return FileUtilsExt.getFileIterator(srcDir, "java");
+    /**
+     * Gets the total uncompressed size of the files with the given extension in the sources, like 'java'.
+     */
+    public long getSourcesSize(String extension) {
+        long size = 0;
+        Enumeration<? extends ZipEntry> e = sources.entries();
+        while (e.hasMoreElements()) {
+            ZipEntry ze = e.nextElement();
+            if (FilenameUtils.isExtension(ze.getName(), extension))
+                size += Math.max(ze.getSize(), 0);
+        }
+        return size;
+    }
+
+    /**
+     * Gets the total size of the jar files in the class path.
+     */
+    public long getClassPathSize() {
+        long size = 0;
+        for (File jar : classPath) {
+            size += jar.length();
+        }
+        return size;
+    }
+
+    public List<JavaFileObject> getSourceFiles() {
+        List<JavaFileObject> r = new ArrayList<>();
+        Enumeration<? extends ZipEntry> e = sources.entries();
+        while (e.hasMoreElements()) {
+            ZipEntry ze = e.nextElement();
+            if (!ze.isDirectory() && ze.getName().endsWith(".java"))
+                r.add(new ZipJavaFileObject(sources, ze));
+        }
+        return r;
     }
 
     /**
@@ -70,110 +118,104 @@ public class SourceAndLibs implements Closeable {
         pkg = pkg.replace('.', '/');
 
         // views in source files
-        File[] srcViews = new File(srcDir,pkg).listFiles();
-        if (srcViews!=null) {
-            for (File f : srcViews) {
-                if (VIEW_EXTENSIONS.contains(FilenameUtils.getExtension(f.getPath()))) {
-                    views.add(f.getName());
-                }
-            }
-        }
-
-        // views from dependencies
-        if (allViews==null) {
-            allViews = new ArrayList<>();
-            for (File jar : getClassPath()) {
-                try (JarFile jf = new JarFile(jar)) {
-                    Enumeration<JarEntry> e = jf.entries();
-                    while (e.hasMoreElements()) {
-                        JarEntry je = e.nextElement();
-                        String n = je.getName();
-                        if (VIEW_EXTENSIONS.contains(FilenameUtils.getExtension(n))) {
-                            allViews.add(n);
-                        }
-                    }
-                } catch (IOException x) {
-                    System.err.println("Failed to open "+jar);
-                    x.printStackTrace();
-                }
-            }
-        }
+        if (sourceViews==null)
+            sourceViews = indexViews(sources, false);
+        views.addAll(sourceViews.getOrDefault(pkg, Collections.emptyList()));
 
+        // views from dependencies.
         // 'foo/bar/zot.jelly' is a view but 'foo/bar/xxx/yyy.jelly' is NOT a view for 'foo/bar'
-        String prefix = pkg+'/';
-        for (String v : allViews) {
-            if (v.startsWith(prefix)) {
-                String rest = v.substring(prefix.length());
-                if (!rest.contains("/"))
-                    views.add(v);
+        if (libViews==null) {
+            libViews = new HashMap<>();
+            for (File jar : getClassPath()) {
+                getJarViews(jar).forEach((dir, names) -> libViews.computeIfAbsent(dir, unused -> new ArrayList<>()).addAll(names));
             }
         }
+        views.addAll(libViews.getOrDefault(pkg, Collections.emptyList()));
 
         return views;
     }
 
-    public static SourceAndLibs create(Module module) throws IOException, InterruptedException {
-        final File tempDir = Files.createTempDirectory("jenkins-extPoint").toFile();
-        File srcdir = new File(tempDir,"src");
-        File libdir = new File(tempDir,"lib");
-
-        System.out.println("Fetching " + module.getSourcesUrl());
-
-        File sourcesJar = File.createTempFile(module.artifactId, "-sources.jar");
-        try (InputStream is = module.getSourcesUrl().openStream(); OutputStream os = Files.newOutputStream(sourcesJar.toPath())) {
-            IOUtils.copy(is, os);
-        }
-        FileUtilsExt.unzip(sourcesJar, srcdir);
+    public static SourceAndLibs create(Module module, DependencyResolver resolver) throws IOException, InterruptedException {
+        return create(module, fetchSources(module, resolver), resolver);
+    }
 
-        System.out.println("Fetching " + module.getResolvedPomUrl());
-        FileUtils.copyURLToFile(module.getResolvedPomUrl(), new File(srcdir, "pom.xml"));
+    /**
+     * @param sourcesJar
+     *      The {@code -sources.jar} of the module, which is left in place.
+     */
+    public static SourceAndLibs create(Module module, File sourcesJar, DependencyResolver resolver) throws IOException, InterruptedException {
+        System.out.println("Resolving dependencies of " + module.gav);
+        List<File> classPath = resolver.resolve(module);
+        return new SourceAndLibs(new ZipFile(sourcesJar), classPath);
+    }
 
-        System.out.println("Downloading Dependencies");
-        downloadDependencies(srcdir, libdir);
+    /**
+     * Resolves the {@code -sources.jar} of the module into the local repository, unless it's there already.
+     */
+    public static File fetchSources(Module module, DependencyResolver resolver) throws IOException {
+        System.out.println("Fetching sources of " + module.gav);
+        return resolver.resolveSources(module);
+    }
 
-        return new SourceAndLibs(srcdir, libdir) {
-            @Override
-            public void close() throws IOException {
-                FileUtils.deleteDirectory(tempDir);
+    /**
+     * Gets the index of the views in a dependency jar, from the directory to the qualified names of the views in it.
+     * Modules mostly depend on the same jars, like jenkins-core, so the most recently used ones are kept indexed
+     * for the modules that follow.
+     */
+    private static Map<String,List<String>> getJarViews(File jar) {
+        Map<String,List<String>> views;
+        synchronized (JAR_VIEWS) {
+            views = JAR_VIEWS.get(jar);
+        }
+        if (views==null) {
+            try (ZipFile zip = new ZipFile(jar)) {
+                views = indexViews(zip, true);
+            } catch (IOException x) {
+                System.err.println("Failed to open "+jar);
+                x.printStackTrace();
+                return Collections.emptyMap();
+            }
+            synchronized (JAR_VIEWS) {
+                JAR_VIEWS.put(jar, views);
             }
-        };
+        }
+        return views;
     }
 
-    @SuppressFBWarnings(value = "COMMAND_INJECTION", justification = "Command injection is not a viable risk here")
-    private static void downloadDependencies(File pomDir, File destDir) throws IOException, InterruptedException {
-        Files.createDirectories(destDir.toPath());
-        String process = "mvn";
-        if (System.getenv("M2_HOME") != null) {
-            process = System.getenv("M2_HOME") + "/bin/mvn";
-        }
-        List<String> command = new ArrayList<>();
-        command.add(process);
-        command.addAll(Arrays.asList("--settings", new File("maven-settings.xml").getAbsolutePath()));
-        command.addAll(Arrays.asList("--update-snapshots",
-                "--batch-mode",
-                "dependency:copy-dependencies",
-                "-DincludeScope=compile",
-                "-DoutputDirectory=" + destDir.getAbsolutePath()));
-
-        ProcessBuilder builder = new ProcessBuilder(command);
-        builder.environment().put("JAVA_HOME",System.getProperty("java.home"));
-        builder.directory(pomDir);
-        builder.redirectErrorStream(true);
-        Process proc = builder.start();
-
-        // capture the output, but only report it in case of an error
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        proc.getOutputStream().close();
-        IOUtils.copy(proc.getInputStream(), output);
-        proc.getErrorStream().close();
-        proc.getInputStream().close();
-
-        int result = proc.waitFor();
-        if (result != 0) {
-            System.out.write(output.toByteArray());
-            throw new IOException("Maven didn't like this (exit code=" + result + ")! " + pomDir.getAbsolutePath());
+    /**
+     * Indexes the views in an archive by their directory.
+     *
+     * @param qualified
+     *      Whether to index the views by their path in the archive, like 'foo/bar/abc.groovy', or just by their file name.
+     */
+    private static Map<String,List<String>> indexViews(ZipFile zip, boolean qualified) {
+        Map<String,List<String>> views = new HashMap<>();
+        Enumeration<? extends ZipEntry> e = zip.entries();
+        while (e.hasMoreElements()) {
+            String n = e.nextElement().getName();
+            if (VIEW_EXTENSIONS.contains(FilenameUtils.getExtension(n))) {
+                views.computeIfAbsent(FilenameUtils.getPathNoEndSeparator(n), unused -> new ArrayList<>())
+                        .add(qualified ? n : FilenameUtils.getName(n));
+            }
         }
+        return views.isEmpty() ? Collections.emptyMap() : views;
     }
 
+    /**
+     * Indices of the dependency jars, least recently used first.
+     * Bounded, as the long tail of jars that only a module or two depend on would otherwise pile up over a run.
+     */
+    private static final Map<File,Map<String,List<String>>> JAR_VIEWS = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File,Map<String,List<String>>> eldest) {
+            return size() > MAX_JAR_VIEWS;
+        }
+    };
+
+    /**
+     * Number of jars kept in {@link #JAR_VIEWS}, which is plenty for the ones that most modules share.
+     */
+    private static final int MAX_JAR_VIEWS = 1000;
+
     private static final Set<String> VIEW_EXTENSIONS = Set.of("jelly", "groovy");
 }
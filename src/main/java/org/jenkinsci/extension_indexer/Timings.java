@@ -0,0 +1,173 @@
+package org.jenkinsci.extension_indexer;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * How long each phase of processing a {@link Module} took, and how it ended, for {@link RunReport}.
+ *
+ * <p>
+ * The phases of a module run one after the other, but on the threads of different stages, so this is thread-safe.
+ */
+final class Timings {
+    enum Phase {
+        /**
+         * Resolving the {@code -sources.jar}, or the binary jar with {@code -binary}, which is quick once it's in the local repository.
+         * In that mode, this also includes resolving the sources of the extension points that the module defines.
+         */
+        DOWNLOAD,
+        /**
+         * Reading the POM of the module, with its parents and imported BOMs.
+         */
+        POM,
+        /**
+         * Resolving the dependencies listed in the POM into the local repository.
+         */
+        RESOLVE,
+        /**
+         * Waiting for the {@link HeapBudget} to admit the analysis.
+         */
+        WAIT,
+        PARSE,
+        /**
+         * Attributing the method bodies, which doesn't happen with {@code -enterOnly}.
+         * With it, classes get entered as the scan needs them, which counts as part of {@link #SCAN}.
+         */
+        ANALYZE,
+        /**
+         * Checking the classes against the type hierarchy, including handing the records over to {@link #SUMMARIZE}.
+         */
+        SCAN,
+        /**
+         * Capturing the records found by {@link #SCAN}, which happens in the middle of it,
+         * so it's begun with {@link Timings#beginNested()}.
+         */
+        SUMMARIZE,
+        /**
+         * Filing the summaries into families, and writing them to the cache and the journal.
+         */
+        AGGREGATE;
+
+        String getName() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * What became of a module.
+     */
+    enum Outcome {
+        SCANNED, CACHED, REUSED, RESUMED, FAILED;
+
+        String getName() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * Nanoseconds spent in each phase, or -1 for phases the module didn't go through.
+     */
+    private final AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+
+    /**
+     * Null until the results of the module are in, or it fails.
+     */
+    private volatile Outcome outcome;
+
+    /**
+     * Phase that was last begun, which is where the module failed if it did.
+     */
+    private volatile Phase current;
+
+    private volatile Throwable failure;
+
+    /**
+     * Number of times the module was set out to be scanned, counting retries.
+     */
+    private volatile int attempts;
+
+    Timings() {
+        for (int i = 0; i < nanos.length(); i++) {
+            nanos.set(i, -1);
+        }
+    }
+
+    /**
+     * Marks the start of a phase.
+     *
+     * @return
+     *      The time to pass to {@link #record(Phase, long)} when the phase is over.
+     */
+    long begin(Phase phase) {
+        current = phase;
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the start of a phase that happens in the middle of the one last begun.
+     * Unlike {@link #begin(Phase)}, this doesn't change {@link #getPhase()}, so a failure is still put down
+     * to the enclosing phase. The time of the nested one still counts towards both.
+     *
+     * @return
+     *      The time to pass to {@link #record(Phase, long)} when the phase is over.
+     */
+    long beginNested() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds the time since the given {@link #begin(Phase)} or {@link #beginNested()} to the phase.
+     * Phases that happen many times, like {@link Phase#SUMMARIZE}, add up.
+     */
+    void record(Phase phase, long start) {
+        long elapsed = System.nanoTime() - start;
+        nanos.accumulateAndGet(phase.ordinal(), elapsed, (total, x) -> Math.max(total, 0) + x);
+    }
+
+    boolean has(Phase phase) {
+        return nanos.get(phase.ordinal()) >= 0;
+    }
+
+    long getNanos(Phase phase) {
+        return Math.max(nanos.get(phase.ordinal()), 0);
+    }
+
+    /**
+     * A module whose results never came in counts as failed, even if it wasn't told why.
+     */
+    Outcome getOutcome() {
+        return outcome != null ? outcome : Outcome.FAILED;
+    }
+
+    void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    /**
+     * Records that the module failed in the phase that was last begun.
+     */
+    void fail(Throwable cause) {
+        this.failure = cause;
+        this.outcome = Outcome.FAILED;
+    }
+
+    /**
+     * Gets the phase that was last begun, which is the one the module failed in if it did.
+     * Null if none was begun yet.
+     */
+    Phase getPhase() {
+        return current;
+    }
+
+    Throwable getFailure() {
+        return failure;
+    }
+
+    int getAttempts() {
+        return attempts;
+    }
+
+    void newAttempt() {
+        attempts++;
+    }
+}
@@ -0,0 +1,67 @@
+package org.jenkinsci.extension_indexer;
+
+import org.apache.commons.io.IOUtils;
+
+import javax.tools.SimpleJavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Java source file that javac reads straight out of a {@code -sources.jar},
+ * so that the archive doesn't have to be extracted to disk first.
+ *
+ * @see SourceAndLibs#getSourceFiles()
+ */
+class ZipJavaFileObject extends SimpleJavaFileObject {
+    private final ZipFile zip;
+    private final ZipEntry entry;
+
+    ZipJavaFileObject(ZipFile zip, ZipEntry entry) {
+        super(toUri(zip, entry), Kind.SOURCE);
+        this.zip = zip;
+        this.entry = entry;
+    }
+
+    /**
+     * Unlike the usual opaque {@code jar:file:/...!/...} form, {@link SimpleJavaFileObject} needs a URI with a path.
+     */
+    private static URI toUri(ZipFile zip, ZipEntry entry) {
+        try {
+            return new URI("jar", null, new File(zip.getName()).getAbsoluteFile().toURI().getPath() + "!/" + entry.getName(), null);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Path of the entry in the archive, such as {@code hudson/model/Action.java}.
+     */
+    @Override
+    public String getName() {
+        return entry.getName();
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        return zip.getInputStream(entry);
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+        try (InputStream is = openInputStream()) {
+            // same encoding as the file manager in ExtensionPointsExtractor
+            return IOUtils.toString(is, Charset.defaultCharset());
+        }
+    }
+
+    @Override
+    public long getLastModified() {
+        return entry.getTime();
+    }
+}